@@ -0,0 +1,8 @@
+#!/bin/sh
+# Builds the benchmarks and runs them; any arguments are passed on to JMH, e.g.
+#   ./run.sh ParseBenchmark -p rows=10000
+#   ./run.sh -rf json -rff results.json
+set -e
+cd "$(dirname "$0")"
+mvn -B -q package
+exec java -jar target/benchmarks.jar "$@"
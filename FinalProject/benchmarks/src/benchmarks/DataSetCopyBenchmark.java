@@ -0,0 +1,43 @@
+package benchmarks;
+
+import data.DataSet;
+import dataprocessors.TSDProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handing the processed data to an algorithm: the snapshot that {@link DataSet#fromTSDProcessor} takes, which shares
+ * the columns, against a full copy of them.
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DataSetCopyBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private TSDProcessor processor;
+
+    @Setup
+    public void setUp() throws Exception {
+        processor = new TSDProcessor(null);
+        processor.processFile(TSDGenerator.generate(rows));
+    }
+
+    @Benchmark
+    public DataSet fromTSDProcessor() {
+        return DataSet.fromTSDProcessor(processor);
+    }
+
+    @Benchmark
+    public DataSet copy() {
+        return new DataSet(processor.getDataSet());
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import dataprocessors.TSDProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading data files through each of the paths that <code>AppData.loadData(Path)</code> may take: streaming (and,
+ * for large files on several cores, parallel) parsing, parsing a memory-mapped file, and reading the binary format.
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LoadDataBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private Path tsdFile;
+    private Path binaryFile;
+
+    @Setup
+    public void setUp() throws Exception {
+        tsdFile = TSDGenerator.generate(rows);
+        binaryFile = Files.createTempFile("vilij-benchmark", ".tsdb");
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processFile(tsdFile);
+        processor.writeBinaryFile(binaryFile);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(binaryFile);
+    }
+
+    @Benchmark
+    public TSDProcessor processFile() throws Exception {
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processFile(tsdFile);
+        return processor;
+    }
+
+    @Benchmark
+    public TSDProcessor processMappedFile() throws Exception {
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processMappedFile(tsdFile);
+        return processor;
+    }
+
+    @Benchmark
+    public TSDProcessor processBinaryFile() throws Exception {
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processBinaryFile(binaryFile);
+        return processor;
+    }
+}
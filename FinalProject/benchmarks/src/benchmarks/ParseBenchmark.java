@@ -0,0 +1,40 @@
+package benchmarks;
+
+import dataprocessors.TSDProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing <code>.tsd</code> data that is already in memory, as the text area hands it to
+ * {@link TSDProcessor#processString(String)}.
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParseBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private String tsdString;
+
+    @Setup
+    public void setUp() throws Exception {
+        tsdString = new String(Files.readAllBytes(TSDGenerator.generate(rows)), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TSDProcessor processString() throws Exception {
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processString(tsdString);
+        return processor;
+    }
+}
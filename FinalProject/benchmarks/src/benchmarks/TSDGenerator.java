@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * Writes synthetic <code>.tsd</code> files for the benchmarks. The instances are drawn from a few Gaussian blobs,
+ * one per label, from a {@link Random} with a fixed seed, so that the same number of rows and seed always give the
+ * same file, byte for byte. Generated files are kept in <code>${java.io.tmpdir}/vilij-benchmarks</code> and reused
+ * across runs.
+ * <p>
+ * Run as a program to write a file elsewhere: <code>TSDGenerator rows seed file</code>.
+ *
+ * @author Aditya Taday
+ */
+public final class TSDGenerator {
+
+    public static final long SEED   = 42;
+    public static final int  LABELS = 4;
+
+    private static final Path   CACHE_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "vilij-benchmarks");
+    private static final double SPREAD    = 40;
+
+    private TSDGenerator() {}
+
+    /**
+     * @return the generated file of the given number of rows for {@link #SEED}, written on first use
+     */
+    public static Path generate(int rows) throws IOException {
+        return generate(rows, SEED);
+    }
+
+    /**
+     * @return the generated file of the given number of rows and seed, written on first use
+     */
+    public static synchronized Path generate(int rows, long seed) throws IOException {
+        Path file = CACHE_DIR.resolve(rows + "-" + seed + ".tsd");
+        if (!Files.exists(file)) {
+            Files.createDirectories(CACHE_DIR);
+            Path partial = Files.createTempFile(CACHE_DIR, "partial", ".tsd");
+            write(partial, rows, seed);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return file;
+    }
+
+    /**
+     * Writes <code>rows</code> lines of the form <code>@Instance&lt;i&gt; \t label&lt;j&gt; \t x,y</code>, with the
+     * coordinates rounded to two decimals.
+     */
+    public static void write(Path file, int rows, long seed) throws IOException {
+        Random random = new Random(seed);
+        double[] centerXs = new double[LABELS];
+        double[] centerYs = new double[LABELS];
+        for (int i = 0; i < LABELS; i++) {
+            centerXs[i] = random.nextInt(1000);
+            centerYs[i] = random.nextInt(1000);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(64);
+            for (int row = 0; row < rows; row++) {
+                int label = random.nextInt(LABELS);
+                line.setLength(0);
+                line.append("@Instance").append(row).append("\tlabel").append(label).append('\t')
+                    .append(round(centerXs[label] + random.nextGaussian() * SPREAD)).append(',')
+                    .append(round(centerYs[label] + random.nextGaussian() * SPREAD)).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: TSDGenerator rows seed file");
+            System.exit(1);
+        }
+        write(Paths.get(args[2]), Integer.parseInt(args[0]), Long.parseLong(args[1]));
+    }
+}
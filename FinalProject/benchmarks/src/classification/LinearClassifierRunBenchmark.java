@@ -0,0 +1,49 @@
+package classification;
+
+import algorithms.Classifier;
+import algorithms.RunConfiguration;
+import benchmarks.TSDGenerator;
+import data.DataSet;
+import dataprocessors.TSDProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole classifier run on one thread, of at most 20 epochs over the data, with the same seed every time. The
+ * training throughput is the number of rows times the epochs run, over the time of a run.
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LinearClassifierRunBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"PerceptronClassifier", "LogisticRegressionClassifier"})
+    public String algorithm;
+
+    private DataSet          dataset;
+    private RunConfiguration configuration;
+
+    @Setup
+    public void setUp() throws Exception {
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processFile(TSDGenerator.generate(rows));
+        dataset = processor.getDataSet();
+        configuration = new RunConfiguration(20, 20, true, 2, 1, TSDGenerator.SEED);
+    }
+
+    @Benchmark
+    public double[] run() throws ReflectiveOperationException {
+        Classifier classifier = (Classifier) configuration.newAlgorithm(algorithm, dataset);
+        classifier.run();
+        return classifier.getOutput();
+    }
+}
@@ -0,0 +1,44 @@
+package clustering;
+
+import benchmarks.TSDGenerator;
+import data.DataSet;
+import dataprocessors.TSDProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole {@link DBSCANClusterer} run on one thread, without publishing updates, including the estimate of epsilon
+ * and the building of the grid. Each run starts from a fresh copy of the data and the same seed.
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DBSCANRunBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private TSDProcessor processor;
+
+    @Setup
+    public void setUp() throws Exception {
+        processor = new TSDProcessor(null);
+        processor.processFile(TSDGenerator.generate(rows));
+    }
+
+    @Benchmark
+    public DataSet run() {
+        DataSet dataset = DataSet.fromTSDProcessor(processor);
+        DBSCANClusterer clusterer = new DBSCANClusterer(dataset, 1, 1, 2);
+        clusterer.setSeed(TSDGenerator.SEED);
+        clusterer.setPublishing(false);
+        clusterer.run();
+        return dataset;
+    }
+}
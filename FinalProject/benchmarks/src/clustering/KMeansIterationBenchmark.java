@@ -0,0 +1,81 @@
+package clustering;
+
+import benchmarks.TSDGenerator;
+import data.DataSet;
+import dataprocessors.TSDProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single K-Means iteration on one thread: assigning every point to its nearest centroid while summing up the
+ * clusters, as {@link KMeansClusterer} does on each block, and moving the centroids to the cluster means. The
+ * centroids are reset before every iteration, so each one does the same work.
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class KMeansIterationBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"4"})
+    public int clusters;
+
+    private double[] xs;
+    private double[] ys;
+    private int      size;
+    private double[] initialXs;
+    private double[] initialYs;
+    private double[] centroidXs;
+    private double[] centroidYs;
+    private int[]    assignments;
+    private double[] sumX;
+    private double[] sumY;
+    private int[]    clusterSize;
+
+    @Setup
+    public void setUp() throws Exception {
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processFile(TSDGenerator.generate(rows));
+        DataSet dataset = processor.getDataSet();
+        xs = dataset.getXs();
+        ys = dataset.getYs();
+        size = dataset.size();
+        initialXs = new double[clusters];
+        initialYs = new double[clusters];
+        KMeansPlusPlusClusterer.seed(xs, ys, size, new Random(TSDGenerator.SEED), initialXs, initialYs);
+        centroidXs = new double[clusters];
+        centroidYs = new double[clusters];
+        assignments = new int[size];
+        sumX = new double[clusters];
+        sumY = new double[clusters];
+        clusterSize = new int[clusters];
+    }
+
+    @Benchmark
+    public double[] iteration() {
+        System.arraycopy(initialXs, 0, centroidXs, 0, clusters);
+        System.arraycopy(initialYs, 0, centroidYs, 0, clusters);
+        Arrays.fill(sumX, 0);
+        Arrays.fill(sumY, 0);
+        Arrays.fill(clusterSize, 0);
+        KMeansClusterer.assignAndAccumulate(xs, ys, 0, size, centroidXs, centroidYs, assignments, sumX, sumY,
+                                            clusterSize);
+        for (int i = 0; i < clusters; i++) {
+            if (clusterSize[i] > 0) {
+                centroidXs[i] = sumX[i] / clusterSize[i];
+                centroidYs[i] = sumY[i] / clusterSize[i];
+            }
+        }
+        return centroidXs;
+    }
+}
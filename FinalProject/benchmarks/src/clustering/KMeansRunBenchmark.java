@@ -0,0 +1,51 @@
+package clustering;
+
+import algorithms.Clusterer;
+import algorithms.RunConfiguration;
+import benchmarks.TSDGenerator;
+import data.DataSet;
+import dataprocessors.TSDProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole K-Means run to convergence on one thread, without publishing updates, to compare the plain assignment
+ * step with the bounds of {@link HamerlyKMeansClusterer}. Each run starts from a fresh copy of the data and the same
+ * seed, so both clusterers do the same iterations.
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class KMeansRunBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"KMeansClusterer", "HamerlyKMeansClusterer"})
+    public String algorithm;
+
+    private TSDProcessor     processor;
+    private RunConfiguration configuration;
+
+    @Setup
+    public void setUp() throws Exception {
+        processor = new TSDProcessor(null);
+        processor.processFile(TSDGenerator.generate(rows));
+        configuration = new RunConfiguration(100, 100, true, 4, 1, TSDGenerator.SEED);
+    }
+
+    @Benchmark
+    public DataSet run() throws ReflectiveOperationException {
+        DataSet dataset = DataSet.fromTSDProcessor(processor);
+        Clusterer clusterer = (Clusterer) configuration.newAlgorithm(algorithm, dataset);
+        clusterer.setPublishing(false);
+        clusterer.run();
+        return dataset;
+    }
+}
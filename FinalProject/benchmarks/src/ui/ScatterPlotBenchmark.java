@@ -0,0 +1,78 @@
+package ui;
+
+import benchmarks.TSDGenerator;
+import dataprocessors.TSDProcessor;
+import javafx.application.Platform;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redrawing the data on an 800x600 {@link ScatterPlot}, as after every update of a running algorithm: counting the
+ * points per pixel into a {@link DensityGrid}, which the plot does in the background for large datasets, and
+ * rendering the grid, which it does on the JavaFX application thread. The plot is
+ * not shown, but laying it out needs a running JavaFX toolkit, and thus a display (or the Monocle headless
+ * platform, e.g., <code>-Dglass.platform=Monocle -Dmonocle.platform=Headless</code>).
+ *
+ * @author Aditya Taday
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ScatterPlotBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /** The size in pixels of the plot area of an 800x600 plot, roughly. */
+    private static final int WIDTH  = 720;
+    private static final int HEIGHT = 520;
+
+    private ScatterPlot plot;
+    private DensityGrid grid;
+
+    @Setup
+    public void setUp() throws Exception {
+        try {
+            Platform.startup(() -> {});
+        } catch (IllegalStateException e) {
+            // the toolkit is already running
+        }
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processFile(TSDGenerator.generate(rows));
+        plot = new ScatterPlot();
+        plot.setBounds(processor.getMin_x() - 1, processor.getMax_x() + 1,
+                       processor.getMin_y() - 1, processor.getMax_y() + 1);
+        plot.setData(processor.getDataSet());
+        CountDownLatch laidOut = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            plot.resize(800, 600);
+            plot.layout();
+            laidOut.countDown();
+        });
+        laidOut.await();
+        grid = bin();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Platform.exit();
+    }
+
+    @Benchmark
+    public DensityGrid bin() {
+        return DensityGrid.bin(plot.getData(), plot.getXAxis().getLowerBound(), plot.getXAxis().getUpperBound(),
+                               plot.getYAxis().getLowerBound(), plot.getYAxis().getUpperBound(), WIDTH, HEIGHT,
+                               plot.getData().labelCount());
+    }
+
+    @Benchmark
+    public ScatterPlot render() {
+        plot.render(grid);
+        return plot;
+    }
+}
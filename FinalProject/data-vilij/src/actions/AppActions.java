@@ -62,6 +62,13 @@ public final class AppActions implements ActionComponent {
         isUnsaved.set(property);
     }
 
+    /**
+     * Sets the file that the data was loaded from, and is saved to.
+     */
+    public void setDataFilePath(Path dataFilePath) {
+        this.dataFilePath = dataFilePath;
+    }
+
     public AtomicBoolean isClearSignal() {
         return clearSignal;
     }
@@ -84,10 +91,6 @@ public final class AppActions implements ActionComponent {
                     applicationTemplate.getUIComponent().clear();
                     isUnsaved.set(false);
                     newButtonHelper();
-                    synchronized (((AppUI) applicationTemplate.getUIComponent())) {
-                        ((AppUI) applicationTemplate.getUIComponent()).notify();
-
-                    }
                 }
             } else if (!isUnsaved.get() || promptToSave()) {
                 applicationTemplate.getUIComponent().clear();
@@ -231,12 +234,12 @@ public final class AppActions implements ActionComponent {
                 //fileChooser.setInitialDirectory(new File(dataDirURL.getPath()));
                 fileChooser.setTitle(manager.getPropertyValue(SAVE_WORK_TITLE.name()));
 
-                fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(applicationTemplate.manager.getPropertyValue(DATA_FILE_EXT_DESC.name()), "*" + applicationTemplate.manager.getPropertyValue(DATA_FILE_EXT.name())));
+                addDataFileFilters(fileChooser);
 
                 File selected = fileChooser.showSaveDialog(applicationTemplate.getUIComponent().getPrimaryWindow());
 
                 if (selected != null) {
-                    if (!selected.getName().contains(applicationTemplate.manager.getPropertyValue(DATA_FILE_EXT.name()))) {
+                    if (!isDataFile(selected)) {
                         throw new IOException(applicationTemplate.manager.getPropertyValue(INCORRECT_FILE_EXTENSION_DATA.name()));
                     }
                     dataFilePath = selected.toPath();
@@ -270,18 +273,33 @@ public final class AppActions implements ActionComponent {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle(applicationTemplate.manager.getPropertyValue(LOAD_DATA.name()));
 
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(applicationTemplate.manager.getPropertyValue(DATA_FILE_EXT_DESC.name()), "*" + applicationTemplate.manager.getPropertyValue(DATA_FILE_EXT.name())));
+        addDataFileFilters(fileChooser);
 
         File selected = fileChooser.showOpenDialog(applicationTemplate.getUIComponent().getPrimaryWindow());
         if (selected != null) {
-            if (!selected.getName().contains(applicationTemplate.manager.getPropertyValue(DATA_FILE_EXT.name()))) {
+            if (!isDataFile(selected)) {
                 throw new IOException(applicationTemplate.manager.getPropertyValue(INCORRECT_FILE_EXTENSION_DATA.name()));
             }
-            dataFilePath = selected.toPath();
-            applicationTemplate.getDataComponent().loadData(dataFilePath);
+            applicationTemplate.getDataComponent().loadData(selected.toPath());
         }
     }
 
+    /**
+     * Adds the filters for the text and the binary data file formats to a file chooser.
+     */
+    private void addDataFileFilters(FileChooser fileChooser) {
+        PropertyManager manager = applicationTemplate.manager;
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter(manager.getPropertyValue(DATA_FILE_EXT_DESC.name()), "*" + manager.getPropertyValue(DATA_FILE_EXT.name())),
+                new FileChooser.ExtensionFilter(manager.getPropertyValue(BINARY_DATA_FILE_EXT_DESC.name()), "*" + manager.getPropertyValue(BINARY_DATA_FILE_EXT.name())));
+    }
+
+    private boolean isDataFile(File file) {
+        PropertyManager manager = applicationTemplate.manager;
+        return file.getName().endsWith(manager.getPropertyValue(DATA_FILE_EXT.name()))
+                || file.getName().endsWith(manager.getPropertyValue(BINARY_DATA_FILE_EXT.name()));
+    }
+
     private void saveImage() throws IOException {
         WritableImage image = ((AppUI) applicationTemplate.getUIComponent()).getChart().getParent().snapshot(new SnapshotParameters(), null);
 
@@ -0,0 +1,140 @@
+package algorithms;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs algorithms, and the tasks that consume their output, on a bounded pool of daemon threads. Every submitted
+ * task gets a {@link RunHandle} through which it can be paused, resumed and cancelled, and whose
+ * {@link RunHandle#getCompletion() completion} tells when it is over. Cancelling interrupts the thread the task runs
+ * on, so no thread ever has to be looked up to be stopped.
+ * <p>
+ * Pausing is cooperative: an algorithm takes part by calling {@link #checkpoint()} once per iteration, where it
+ * would otherwise check whether it was interrupted.
+ *
+ * @author Aditya Taday
+ */
+public class AlgorithmRunner {
+
+    private static final int QUEUED_RUNS = 16;
+
+    private static final ThreadLocal<RunHandle> CURRENT = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threads the number of tasks that can run at the same time; further tasks wait for a free thread
+     */
+    public AlgorithmRunner(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUED_RUNS),
+                                          runnable -> {
+                                              Thread thread = new Thread(runnable, "algorithm-run-" + count.incrementAndGet());
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts a task, e.g., an {@link Algorithm}, as soon as a thread is free.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if too many tasks are already waiting for a thread
+     */
+    public RunHandle submit(Runnable task) {
+        RunHandle handle = new RunHandle();
+        handle.future = executor.submit(() -> {
+            CURRENT.set(handle);
+            try {
+                checkpoint();
+                task.run();
+                handle.completion.complete(null);
+            } catch (InterruptedException e) {
+                handle.completion.cancel(false);
+            } catch (Throwable t) {
+                handle.completion.completeExceptionally(t);
+            } finally {
+                CURRENT.remove();
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Cancels all tasks and stops the threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits while the task running on the current thread is paused.
+     *
+     * @throws InterruptedException if the task was cancelled, or its thread interrupted
+     */
+    public static void checkpoint() throws InterruptedException {
+        RunHandle handle = CURRENT.get();
+        if (handle != null)
+            handle.awaitResumed();
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+
+    /**
+     * Controls one submitted task.
+     */
+    public static final class RunHandle {
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile Future<?> future;
+        private boolean paused;
+
+        private RunHandle() {}
+
+        /**
+         * Stops the task, interrupting it if it is running. A task that did not start yet never will.
+         */
+        public void cancel() {
+            resume();
+            future.cancel(true);
+            completion.cancel(false);
+        }
+
+        /**
+         * Makes the task wait at its next {@link AlgorithmRunner#checkpoint()} until it is resumed or cancelled.
+         */
+        public synchronized void pause() {
+            paused = true;
+        }
+
+        public synchronized void resume() {
+            paused = false;
+            notifyAll();
+        }
+
+        public synchronized boolean isPaused() {
+            return paused;
+        }
+
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        /**
+         * @return a future that completes when the task returns, completes exceptionally if it failed, and is
+         * cancelled if the task was cancelled
+         */
+        public CompletableFuture<Void> getCompletion() {
+            return completion;
+        }
+
+        private synchronized void awaitResumed() throws InterruptedException {
+            while (paused)
+                wait();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package algorithms;
+
+import data.DataSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A file that a {@link Checkpointable} algorithm saves its state to every {@link #getInterval()} iterations, and
+ * resumes from when it is run again on the same data. The file holds
+ * <pre>
+ *   header       magic, version, the algorithm's class name, instance count, data fingerprint, iteration
+ *   state        whatever the algorithm writes, see {@link Checkpointable#writeState(DataOutputStream)}
+ * </pre>
+ * A checkpoint of another algorithm or other data is ignored, so the run starts over. The data is recognized by the
+ * fingerprint of its coordinates, not of its labels, since clusterers relabel the data they run on. The file is
+ * written to a temporary file first and then moved into place, so a crash while saving leaves the previous
+ * checkpoint intact, and it is deleted once the run completes, so only unfinished runs leave one behind.
+ *
+ * @author Aditya Taday
+ */
+public final class Checkpoint {
+
+    private static final int    MAGIC             = 0x56434b50; // "VCKP"
+    private static final int    VERSION           = 1;
+    private static final String DEFAULT_DIRECTORY = "vilij-checkpoints";
+    private static final String FILE_EXT          = ".ckpt";
+    private static final String SAVE_FAILED       = "Could not save the checkpoint ";
+    private static final String CORRUPT_COLUMN    = "Corrupt checkpoint column";
+
+    private final Path file;
+    private final int  interval;
+    private long       dataFingerprint;
+    private boolean    fingerprinted;
+
+    /**
+     * @param interval the number of iterations between saves; values below 1 mean 1
+     */
+    public Checkpoint(Path file, int interval) {
+        this.file = file;
+        this.interval = Math.max(1, interval);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the file a checkpoint of the given algorithm on the given data is kept in when no file is named, in
+     * the temporary directory
+     */
+    public static Path defaultFile(String algorithmName, DataSet dataset) {
+        String simpleName = algorithmName.substring(algorithmName.lastIndexOf('.') + 1);
+        return Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY,
+                         String.format("%s-%d-%016x%s", simpleName, dataset.size(), fingerprint(dataset), FILE_EXT));
+    }
+
+    /**
+     * Takes over the state saved in the checkpoint, if there is one of this algorithm on this data.
+     *
+     * @return the iteration the state was saved at, or 0 if the algorithm should start over
+     */
+    public int restore(Checkpointable algorithm, DataSet dataset) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                || !in.readUTF().equals(algorithm.getClass().getName())
+                || in.readInt() != dataset.size() || in.readLong() != fingerprintOf(dataset))
+                return 0;
+            int iteration = in.readInt();
+            algorithm.readState(in);
+            return iteration;
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Saves the state of the algorithm after the given iteration, if it is due. A checkpoint that cannot be written
+     * is reported but does not stop the run.
+     */
+    public void save(Checkpointable algorithm, DataSet dataset, int iteration) {
+        if (iteration % interval != 0)
+            return;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null)
+                Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(algorithm.getClass().getName());
+                out.writeInt(dataset.size());
+                out.writeLong(fingerprintOf(dataset));
+                out.writeInt(iteration);
+                algorithm.writeState(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(SAVE_FAILED + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the checkpoint, once the run it belongs to completed.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the fingerprint of the data, which is computed once per run, as the coordinates never change during one
+     */
+    private long fingerprintOf(DataSet dataset) {
+        if (!fingerprinted) {
+            dataFingerprint = fingerprint(dataset);
+            fingerprinted = true;
+        }
+        return dataFingerprint;
+    }
+
+    /**
+     * @return a hash of the instance count and coordinates of the data
+     */
+    public static long fingerprint(DataSet dataset) {
+        double[] xs = dataset.getXs();
+        double[] ys = dataset.getYs();
+        long hash = dataset.size();
+        for (int i = 0; i < dataset.size(); i++) {
+            hash = 31 * hash + Double.doubleToLongBits(xs[i]);
+            hash = 31 * hash + Double.doubleToLongBits(ys[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the first <code>length</code> values of a non-negative column in as few bytes per value as its largest
+     * value needs, so that, e.g., the assignments to a few clusters take one byte per point. The values are packed
+     * into one array and written at once, rather than one by one through the stream.
+     */
+    public static void writeColumn(DataOutputStream out, int[] values, int length) throws IOException {
+        int max = 0;
+        for (int i = 0; i < length; i++)
+            max = Math.max(max, values[i]);
+        int width = max < 1 << 8 ? 1 : max < 1 << 16 ? 2 : 4;
+        ByteBuffer packed = ByteBuffer.allocate(length * width);
+        for (int i = 0; i < length; i++) {
+            if (width == 1)
+                packed.put((byte) values[i]);
+            else if (width == 2)
+                packed.putShort((short) values[i]);
+            else
+                packed.putInt(values[i]);
+        }
+        out.writeInt(length);
+        out.writeByte(width);
+        out.write(packed.array());
+    }
+
+    /**
+     * Reads a column written by {@link #writeColumn(DataOutputStream, int[], int)}.
+     *
+     * @throws IOException if the column does not have the expected length
+     */
+    public static int[] readColumn(DataInputStream in, int expectedLength) throws IOException {
+        int length = in.readInt();
+        int width = in.readUnsignedByte();
+        if (length != expectedLength || (width != 1 && width != 2 && width != 4))
+            throw new IOException(CORRUPT_COLUMN);
+        byte[] bytes = new byte[length * width];
+        in.readFully(bytes);
+        ByteBuffer packed = ByteBuffer.wrap(bytes);
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++)
+            values[i] = width == 1 ? packed.get() & 0xff : width == 2 ? packed.getShort() & 0xffff : packed.getInt();
+        return values;
+    }
+
+    public static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values)
+            out.writeDouble(value);
+    }
+
+    /**
+     * @throws IOException if the array does not have the expected length
+     */
+    public static double[] readDoubles(DataInputStream in, int expectedLength) throws IOException {
+        if (in.readInt() != expectedLength)
+            throw new IOException(CORRUPT_COLUMN);
+        double[] values = new double[expectedLength];
+        for (int i = 0; i < expectedLength; i++)
+            values[i] = in.readDouble();
+        return values;
+    }
+}
@@ -0,0 +1,30 @@
+package algorithms;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An algorithm whose iteration state can be saved to a {@link Checkpoint}, so that a later run can resume from it
+ * instead of starting over. The state is what the algorithm needs to carry on after the iteration it was saved at,
+ * e.g., the centroids and assignments of a clusterer, or the coefficients of a classifier; the iteration itself and
+ * the identity of the data are saved by the checkpoint.
+ *
+ * @author Aditya Taday
+ */
+public interface Checkpointable extends Algorithm {
+
+    /**
+     * Writes the state after the current iteration.
+     */
+    void writeState(DataOutputStream out) throws IOException;
+
+    /**
+     * Reads a state written by {@link #writeState(DataOutputStream)} and takes it over. Called after the algorithm
+     * initialized itself, in place of the iterations that the state stands for. Nothing may be taken over unless the
+     * whole state could be read.
+     *
+     * @throws IOException if the state cannot be read, or does not fit the algorithm's settings
+     */
+    void readState(DataInputStream in) throws IOException;
+}
@@ -1,7 +1,6 @@
 package algorithms;
 
-import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -16,18 +15,75 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public abstract class Classifier implements Algorithm {
 
     /**
-     * See Appendix C of the SRS. Defining the output as a
-     * list instead of a triple allows for future extension
-     * into polynomial curves instead of just straight lines.
-     * See 3.4.4 of the SRS.
+     * See Appendix C of the SRS. The coefficients <code>(a, b, c)</code> of the line <code>b y = a x + c</code>.
+     * Defining the output as an array instead of a triple allows for future extension into polynomial curves instead
+     * of just straight lines. See 3.4.4 of the SRS. An output that was put on the queue is not changed afterwards.
      */
-    protected List<Integer> output;
+    protected double[] output;
 
-    public LinkedBlockingQueue<List<Integer>> getQueue() {
+    /**
+     * @return the latest output, or <code>null</code> if the algorithm did not produce one yet
+     */
+    public double[] getOutput() {
+        return output;
+    }
+
+    public CoalescingChannel<double[]> getQueue() {
         return queue;
     }
 
-    protected LinkedBlockingQueue<List<Integer>> queue = new LinkedBlockingQueue();
+    /**
+     * Only the latest output matters, so coalescing outputs keeps the newer one.
+     */
+    protected CoalescingChannel<double[]> queue = new CoalescingChannel<>((older, newer) -> newer);
+
+    private boolean publishing = true;
+
+    /**
+     * Turns the publishing of outputs on or off. A run without a consumer, e.g., in batch mode, only needs the final
+     * {@link #output}, and must not wait for a consumer to take each output of a stepped run.
+     */
+    public void setPublishing(boolean publishing) {
+        this.publishing = publishing;
+    }
+
+    /**
+     * Puts the current {@link #output} on the channel, unless publishing is turned off.
+     */
+    protected void publishOutput() throws InterruptedException {
+        if (publishing)
+            queue.put(output);
+    }
+
+    private Long seed;
+
+    /**
+     * Fixes the seed of the algorithm's random choices, so that a run can be repeated.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return a new generator for the algorithm's random choices, seeded if {@link #setSeed(long)} was called
+     */
+    protected Random newRandom() {
+        return seed == null ? new Random() : new Random(seed);
+    }
+
+    /**
+     * The checkpoint that a {@link Checkpointable} algorithm saves its state to and resumes from, or
+     * <code>null</code> to neither save nor resume.
+     */
+    protected Checkpoint checkpoint;
+
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
 
     public AtomicBoolean producerIsIsDone() {
         return producerIsIsDone;
@@ -1,7 +1,10 @@
 package algorithms;
 
-import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import data.DataSet;
+import metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -9,6 +12,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public abstract class Clusterer implements Algorithm {
 
+    private static final String TOO_FEW_INSTANCES = "Cannot form %d clusters from %d instances";
+
     protected final int numberOfClusters;
 
     public int getNumberOfClusters() {
@@ -23,11 +28,121 @@ public abstract class Clusterer implements Algorithm {
         numberOfClusters = k;
     }
 
-    public LinkedBlockingQueue<Map<String, String>> getQueue() {
+    protected int workerCount = 1;
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Sets the number of threads that the algorithm may use, if it can run in parallel. Values below 1 mean 1.
+     */
+    public void setWorkerCount(int workers) {
+        workerCount = Math.max(1, workers);
+    }
+
+    /**
+     * Checks that there is at least one instance per cluster, as an algorithm that seeds every cluster with its own
+     * instance needs.
+     *
+     * @throws IllegalArgumentException if the dataset has fewer instances than {@link #numberOfClusters}
+     */
+    protected void requireInstancePerCluster(DataSet dataset) {
+        if (dataset.size() < numberOfClusters)
+            throw new IllegalArgumentException(String.format(TOO_FEW_INSTANCES, numberOfClusters, dataset.size()));
+    }
+
+    private Long seed;
+
+    /**
+     * Fixes the seed of the algorithm's random choices, so that a run can be repeated.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return a new generator for the algorithm's random choices, seeded if {@link #setSeed(long)} was called
+     */
+    protected Random newRandom() {
+        return seed == null ? new Random() : new Random(seed);
+    }
+
+    /**
+     * The checkpoint that a {@link Checkpointable} algorithm saves its state to and resumes from, or
+     * <code>null</code> to neither save nor resume.
+     */
+    protected Checkpoint checkpoint;
+
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @return the channel of label updates; each update lists the instances whose label changed, with their new label
+     */
+    public CoalescingChannel<LabelChanges> getQueue() {
         return queue;
     }
 
-    protected LinkedBlockingQueue<Map<String, String>> queue = new LinkedBlockingQueue();
+    protected CoalescingChannel<LabelChanges> queue = new CoalescingChannel<>(LabelChanges::merge);
+
+    private int[] publishedLabelIds;
+    private boolean publishedLabelIdsShared; // whether publishedLabelIds is still the dataset's label id snapshot
+    private boolean publishing = true;
+
+    /**
+     * Turns the publishing of label updates on or off. A run without a consumer, e.g., in batch mode, only needs the
+     * labels the algorithm leaves in its dataset, so it need not collect the changes.
+     */
+    public void setPublishing(boolean publishing) {
+        this.publishing = publishing;
+    }
+
+    /**
+     * Takes the current labels of the dataset as the ones the consumer already has. Must be called before
+     * {@link #publishChangedLabels(DataSet)}, and before the algorithm relabels anything. Takes constant time: the
+     * labels are only copied by the first publish, which looks at every label anyway.
+     */
+    protected void trackLabels(DataSet dataset) {
+        if (publishing) {
+            publishedLabelIds = dataset.getLabelIdsSnapshot();
+            publishedLabelIdsShared = true;
+        }
+    }
+
+    /**
+     * Puts the labels that changed since they were last published (or tracked) on the channel.
+     */
+    protected void publishChangedLabels(DataSet dataset) throws InterruptedException {
+        if (!publishing)
+            return;
+        if (publishedLabelIdsShared) {
+            publishedLabelIds = Arrays.copyOf(publishedLabelIds, dataset.size());
+            publishedLabelIdsShared = false;
+        }
+        int[] labelIds = dataset.getLabelIds();
+        int[] changedIndices = new int[16];
+        int[] changedLabelIds = new int[16];
+        int changed = 0;
+        for (int i = 0; i < dataset.size(); i++) {
+            if (labelIds[i] != publishedLabelIds[i]) {
+                if (changed == changedIndices.length) {
+                    changedIndices = Arrays.copyOf(changedIndices, 2 * changed);
+                    changedLabelIds = Arrays.copyOf(changedLabelIds, 2 * changed);
+                }
+                changedIndices[changed] = i;
+                changedLabelIds[changed++] = labelIds[i];
+                publishedLabelIds[i] = labelIds[i];
+            }
+        }
+        Metrics.SNAPSHOT_SIZE.record(changed);
+        queue.put(new LabelChanges(dataset, changedIndices, changedLabelIds, changed));
+    }
 
     public AtomicBoolean producerIsIsDone() {
         return producerIsIsDone;
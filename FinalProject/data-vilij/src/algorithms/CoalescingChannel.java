@@ -0,0 +1,91 @@
+package algorithms;
+
+import metrics.Metrics;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * The handoff between an algorithm, which produces updates, and the thread that displays them. The channel holds at
+ * most one pending update, so its memory use does not grow with the length of a run. When the producer is faster
+ * than the consumer, the channel either merges the new update into the pending one (coalescing mode, the default),
+ * or makes the producer wait until the pending update was taken, so that the consumer sees every update (e.g., to
+ * step through a run one update at a time).
+ *
+ * @param <T> the type of the updates
+ * @author Aditya Taday
+ */
+public class CoalescingChannel<T> {
+
+    private final BinaryOperator<T> merge;
+    private T       pending;
+    private boolean coalescing = true;
+
+    /**
+     * @param merge combines a pending update with a newer one into a single update equivalent to both
+     */
+    public CoalescingChannel(BinaryOperator<T> merge) {
+        this.merge = merge;
+    }
+
+    /**
+     * Makes further updates either coalesce with a pending one, or wait until it was taken.
+     */
+    public synchronized void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+        notifyAll();
+    }
+
+    /**
+     * Hands an update to the consumer.
+     *
+     * @throws InterruptedException if the producer was interrupted while waiting for the consumer
+     */
+    public synchronized void put(T update) throws InterruptedException {
+        while (!coalescing && pending != null)
+            wait();
+        Metrics.HANDOFF_DEPTH.record(size());
+        if (pending == null) {
+            pending = update;
+        } else {
+            pending = merge.apply(pending, update);
+            Metrics.COALESCED_HANDOFFS.increment();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Removes the pending update, waiting for one if there is none.
+     *
+     * @throws InterruptedException if the consumer was interrupted while waiting for the producer
+     */
+    public synchronized T take() throws InterruptedException {
+        while (pending == null)
+            wait();
+        return poll();
+    }
+
+    /**
+     * Removes the pending update without waiting.
+     *
+     * @return the pending update, or <code>null</code> if there is none
+     */
+    public synchronized T poll() {
+        T update = pending;
+        pending = null;
+        notifyAll();
+        return update;
+    }
+
+    public synchronized boolean isEmpty() {
+        return pending == null;
+    }
+
+    /** @return the number of pending updates, which is 0 or 1 */
+    public synchronized int size() {
+        return pending == null ? 0 : 1;
+    }
+
+    public synchronized void clear() {
+        poll();
+    }
+}
@@ -0,0 +1,107 @@
+package algorithms;
+
+import data.DataSet;
+
+import java.util.Arrays;
+
+/**
+ * The instances of a dataset whose labels a clusterer changed, as parallel arrays of their indices and new label
+ * ids, together with the clusterer's label dictionary at the time, since the ids of the labels in the consumer's
+ * dataset may differ. The changes are in order: where an instance changed more than once, the last change counts.
+ *
+ * @author Aditya Taday
+ */
+public final class LabelChanges {
+
+    private final int      instanceCount;
+    private final int[]    indices;
+    private final int[]    labelIds;
+    private final int      size;
+    private final String[] labels;
+
+    /**
+     * @param dataset  the dataset that was relabeled, whose label dictionary is copied
+     * @param indices  the indices of the changed instances; the array is not copied
+     * @param labelIds the new label ids of those instances; the array is not copied
+     * @param size     the number of changes, i.e., of the entries of the arrays in use
+     */
+    public LabelChanges(DataSet dataset, int[] indices, int[] labelIds, int size) {
+        this.instanceCount = dataset.size();
+        this.indices = indices;
+        this.labelIds = labelIds;
+        this.size = size;
+        this.labels = new String[dataset.labelCount()];
+        for (int labelId = 0; labelId < labels.length; labelId++)
+            labels[labelId] = dataset.labelOf(labelId);
+    }
+
+    private LabelChanges(int instanceCount, int[] indices, int[] labelIds, int size, String[] labels) {
+        this.instanceCount = instanceCount;
+        this.indices = indices;
+        this.labelIds = labelIds;
+        this.size = size;
+        this.labels = labels;
+    }
+
+    /** @return the number of changes */
+    public int size() {
+        return size;
+    }
+
+    /** @return the index of the instance of the given change */
+    public int getIndex(int change) {
+        return indices[change];
+    }
+
+    /** @return the new label id, in the clusterer's dictionary, of the instance of the given change */
+    public int getLabelId(int change) {
+        return labelIds[change];
+    }
+
+    /** @return the number of labels in the clusterer's dictionary */
+    public int labelCount() {
+        return labels.length;
+    }
+
+    public String labelOf(int labelId) {
+        return labels[labelId];
+    }
+
+    /**
+     * Combines two successive sets of changes into one. As long as there are fewer changes than instances, the newer
+     * changes are simply appended; beyond that, each instance is kept once, with its latest label, so that the
+     * changes pending on a channel never outnumber the instances.
+     */
+    public static LabelChanges merge(LabelChanges older, LabelChanges newer) {
+        int total = older.size + newer.size;
+        if (total <= newer.instanceCount) {
+            int[] indices = Arrays.copyOf(older.indices, total);
+            int[] labelIds = Arrays.copyOf(older.labelIds, total);
+            System.arraycopy(newer.indices, 0, indices, older.size, newer.size);
+            System.arraycopy(newer.labelIds, 0, labelIds, older.size, newer.size);
+            return new LabelChanges(newer.instanceCount, indices, labelIds, total, newer.labels);
+        }
+
+        int[] latest = new int[newer.instanceCount];
+        Arrays.fill(latest, -1);
+        for (int change = 0; change < older.size; change++)
+            latest[older.indices[change]] = older.labelIds[change];
+        for (int change = 0; change < newer.size; change++)
+            latest[newer.indices[change]] = newer.labelIds[change];
+        int size = 0;
+        for (int labelId : latest) {
+            if (labelId >= 0)
+                size++;
+        }
+        int[] indices = new int[size];
+        int[] labelIds = new int[size];
+        size = 0;
+        for (int index = 0; index < latest.length; index++) {
+            if (latest[index] >= 0) {
+                indices[size] = index;
+                labelIds[size++] = latest[index];
+            }
+        }
+        return new LabelChanges(newer.instanceCount, indices, labelIds, size, newer.labels);
+    }
+}
@@ -0,0 +1,197 @@
+package algorithms;
+
+import data.DataSet;
+import metrics.Metrics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A classifier that learns a line separating two labels by passes (epochs) over the primitive columns of the
+ * {@link DataSet}. The instances of the label of the first instance are the positive class, and all others the
+ * negative one. The coordinates are standardized, i.e., centered on their means and scaled by their standard
+ * deviations, on the fly, so that the learning rate does not depend on their units; the weights are only converted
+ * back to a line in the original coordinates when they are published.
+ * <p>
+ * An epoch visits the instances in a new random order, which is a permutation of their indices shuffled in place,
+ * so training allocates nothing per instance. The run stops early once an epoch reports convergence. A
+ * {@link Checkpoint} saves the weights, from which a resumed run goes on with the next epoch.
+ *
+ * @author Aditya Taday
+ */
+public abstract class LinearClassifier extends Classifier implements Checkpointable {
+
+    protected final DataSet dataset;
+    private final int maxIterations;
+    private final int updateInterval;
+    private final AtomicBoolean tocontinue;
+
+    protected double[] xs;       // the standardized coordinates
+    protected double[] ys;
+    protected byte[]   targets;  // 1 for the positive class, -1 for the negative one
+    protected int[]    order;    // the order in which the current epoch visits the instances
+    protected double   bias;     // the weights of the standardized coordinates
+    protected double   xWeight;
+    protected double   yWeight;
+
+    private double meanX;
+    private double meanY;
+    private double scaleX;
+    private double scaleY;
+
+    protected LinearClassifier(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue) {
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = Math.max(1, updateInterval);
+        this.tocontinue = new AtomicBoolean(tocontinue);
+    }
+
+    @Override
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    @Override
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    @Override
+    public boolean tocontinue() {
+        return tocontinue.get();
+    }
+
+    @Override
+    public void run() {
+        prepare();
+        Random random = newRandom();
+        int resumed = checkpoint == null ? 0 : checkpoint.restore(this, dataset);
+        try {
+            // the resumed line is the output until the next epoch, but not an update of its own, so that a stepped
+            // run shows the same steps whether it resumed or not
+            if (resumed > 0)
+                output = line();
+            for (int epoch = resumed + 1; epoch <= maxIterations; epoch++) {
+                AlgorithmRunner.checkpoint();
+                long iterationStart = System.nanoTime();
+
+                shuffle(random);
+                boolean converged = epoch(epoch);
+
+                if (epoch % updateInterval == 0 || epoch == maxIterations || converged)
+                    publish();
+                if (checkpoint != null)
+                    checkpoint.save(this, dataset, epoch);
+                Metrics.ITERATION_NANOS.record(System.nanoTime() - iterationStart);
+                if (converged)
+                    break;
+            }
+            if (checkpoint != null)
+                checkpoint.delete();
+            producerIsIsDone.set(true);
+        } catch (InterruptedException ex) {
+            // the run was cancelled, which its run handle already reports
+        }
+    }
+
+    /**
+     * Writes the weights of the standardized coordinates, which the standardization of the same data turns back into
+     * the same line.
+     */
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeDouble(bias);
+        out.writeDouble(xWeight);
+        out.writeDouble(yWeight);
+    }
+
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        double savedBias = in.readDouble();
+        double savedXWeight = in.readDouble();
+        double savedYWeight = in.readDouble();
+        bias = savedBias;
+        xWeight = savedXWeight;
+        yWeight = savedYWeight;
+    }
+
+    /**
+     * Makes one pass over the instances in the current {@link #order}, updating the weights.
+     *
+     * @param epoch the number of the pass, starting at 1
+     * @return whether the weights converged, so that further passes would not change them materially
+     */
+    protected abstract boolean epoch(int epoch);
+
+    /**
+     * Standardizes the coordinates and encodes the labels as targets.
+     */
+    private void prepare() {
+        int size = dataset.size();
+        double[] rawXs = dataset.getXs();
+        double[] rawYs = dataset.getYs();
+        int[] labelIds = dataset.getLabelIds();
+        meanX = 0;
+        meanY = 0;
+        for (int i = 0; i < size; i++) {
+            meanX += rawXs[i];
+            meanY += rawYs[i];
+        }
+        meanX /= Math.max(1, size);
+        meanY /= Math.max(1, size);
+        double varianceX = 0;
+        double varianceY = 0;
+        for (int i = 0; i < size; i++) {
+            varianceX += (rawXs[i] - meanX) * (rawXs[i] - meanX);
+            varianceY += (rawYs[i] - meanY) * (rawYs[i] - meanY);
+        }
+        scaleX = varianceX > 0 ? Math.sqrt(varianceX / size) : 1;
+        scaleY = varianceY > 0 ? Math.sqrt(varianceY / size) : 1;
+
+        xs = new double[size];
+        ys = new double[size];
+        targets = new byte[size];
+        order = new int[size];
+        int positive = size > 0 ? labelIds[0] : 0;
+        for (int i = 0; i < size; i++) {
+            xs[i] = (rawXs[i] - meanX) / scaleX;
+            ys[i] = (rawYs[i] - meanY) / scaleY;
+            targets[i] = (byte) (labelIds[i] == positive ? 1 : -1);
+            order[i] = i;
+        }
+        bias = 0;
+        xWeight = 0;
+        yWeight = 0;
+    }
+
+    private void shuffle(Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    /**
+     * Puts the current line on the queue.
+     */
+    private void publish() throws InterruptedException {
+        output = line();
+        publishOutput();
+    }
+
+    /**
+     * @return the line on which the weighted sum of the original coordinates is 0, as the coefficients
+     * <code>(a, b, c)</code> of <code>b y = a x + c</code>
+     */
+    private double[] line() {
+        double rawXWeight = xWeight / scaleX;
+        double rawYWeight = yWeight / scaleY;
+        double rawBias = bias - rawXWeight * meanX - rawYWeight * meanY;
+        return new double[]{-rawXWeight, rawYWeight, -rawBias};
+    }
+}
@@ -0,0 +1,153 @@
+package algorithms;
+
+import data.DataSet;
+
+import java.nio.file.Path;
+
+/**
+ * The settings an algorithm is run with, and the means to instantiate an algorithm by the name of its class with
+ * those settings. Clusterers are constructed from <code>(DataSet, int maxIterations, int updateInterval, int
+ * numberOfClusters)</code> and classifiers from <code>(DataSet, int maxIterations, int updateInterval, boolean
+ * continuous)</code>.
+ *
+ * @author Aditya Taday
+ */
+public class RunConfiguration {
+
+    private static final String[] ALGORITHM_PACKAGES = {"clustering", "classification"};
+    private static final String    NOT_AN_ALGORITHM  = " is neither a clusterer nor a classifier";
+    private static final String    UNKNOWN_ALGORITHM = "No such algorithm: ";
+
+    private final int     maxIterations;
+    private final int     updateInterval;
+    private final boolean continuous;
+    private final int     numberOfClusters;
+    private final int     workerCount;
+    private final Long    seed;
+    private final int     checkpointInterval;
+    private final Path    checkpointFile;
+
+    /**
+     * @param numberOfClusters only used by clusterers
+     * @param workerCount      only used by clusterers that can run in parallel
+     * @param seed             the seed of the algorithm's random choices, or <code>null</code> for a random one
+     */
+    public RunConfiguration(int maxIterations, int updateInterval, boolean continuous, int numberOfClusters,
+                            int workerCount, Long seed) {
+        this(maxIterations, updateInterval, continuous, numberOfClusters, workerCount, seed, 0, null);
+    }
+
+    /**
+     * @param checkpointInterval the number of iterations between checkpoints of algorithms that support them, or 0
+     *                           for none, in which case the algorithm does not resume from a checkpoint either
+     * @param checkpointFile     the checkpoint file, or <code>null</code> for the
+     *                           {@linkplain Checkpoint#defaultFile(String, DataSet) default} of the algorithm and data
+     * @see #RunConfiguration(int, int, boolean, int, int, Long)
+     */
+    public RunConfiguration(int maxIterations, int updateInterval, boolean continuous, int numberOfClusters,
+                            int workerCount, Long seed, int checkpointInterval, Path checkpointFile) {
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.continuous = continuous;
+        this.numberOfClusters = numberOfClusters;
+        this.workerCount = workerCount;
+        this.seed = seed;
+        this.checkpointInterval = checkpointInterval;
+        this.checkpointFile = checkpointFile;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    public int getNumberOfClusters() {
+        return numberOfClusters;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Finds an algorithm class by its fully qualified name, or by its simple name in one of the algorithm packages.
+     *
+     * @throws ClassNotFoundException if there is no such class
+     */
+    public static Class<?> findAlgorithmClass(String name) throws ClassNotFoundException {
+        if (name.indexOf('.') >= 0)
+            return Class.forName(name);
+        for (String algorithmPackage : ALGORITHM_PACKAGES) {
+            try {
+                return Class.forName(algorithmPackage + "." + name);
+            } catch (ClassNotFoundException e) {
+                // try the next package
+            }
+        }
+        throw new ClassNotFoundException(UNKNOWN_ALGORITHM + name);
+    }
+
+    /**
+     * Instantiates an algorithm on the given dataset with this configuration. The algorithm's channel is emptied,
+     * and made to coalesce its updates in continuous runs, or to hand over each update in stepped ones. A
+     * {@link Checkpointable} algorithm is given its {@link Checkpoint} if the configuration has a checkpoint interval.
+     *
+     * @param name the name of the algorithm's class, see {@link #findAlgorithmClass(String)}
+     * @throws ReflectiveOperationException if the class cannot be found or instantiated
+     * @throws IllegalArgumentException     if the class is not an algorithm
+     */
+    public Algorithm newAlgorithm(String name, DataSet dataset) throws ReflectiveOperationException {
+        Class<?> algorithmClass = findAlgorithmClass(name);
+        if (Clusterer.class.isAssignableFrom(algorithmClass)) {
+            Clusterer clusterer = (Clusterer) algorithmClass
+                    .getConstructor(DataSet.class, int.class, int.class, int.class)
+                    .newInstance(dataset, maxIterations, updateInterval, numberOfClusters);
+            clusterer.getQueue().clear();
+            clusterer.getQueue().setCoalescing(continuous);
+            clusterer.setWorkerCount(workerCount);
+            if (seed != null)
+                clusterer.setSeed(seed);
+            clusterer.setCheckpoint(newCheckpoint(clusterer, dataset));
+            return clusterer;
+        }
+        if (Classifier.class.isAssignableFrom(algorithmClass)) {
+            Classifier classifier = (Classifier) algorithmClass
+                    .getConstructor(DataSet.class, int.class, int.class, boolean.class)
+                    .newInstance(dataset, maxIterations, updateInterval, continuous);
+            classifier.getQueue().clear();
+            classifier.getQueue().setCoalescing(continuous);
+            if (seed != null)
+                classifier.setSeed(seed);
+            classifier.setCheckpoint(newCheckpoint(classifier, dataset));
+            return classifier;
+        }
+        throw new IllegalArgumentException(algorithmClass.getName() + NOT_AN_ALGORITHM);
+    }
+
+    private Checkpoint newCheckpoint(Algorithm algorithm, DataSet dataset) {
+        if (checkpointInterval < 1 || !(algorithm instanceof Checkpointable))
+            return null;
+        Path file = checkpointFile != null ? checkpointFile
+                                           : Checkpoint.defaultFile(algorithm.getClass().getName(), dataset);
+        return new Checkpoint(file, checkpointInterval);
+    }
+}
@@ -0,0 +1,181 @@
+package batch;
+
+import algorithms.Algorithm;
+import algorithms.Classifier;
+import algorithms.Clusterer;
+import algorithms.RunConfiguration;
+import data.DataSet;
+import dataprocessors.TSDProcessor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs an algorithm on a data file from the command line, without the user interface and without starting the
+ * JavaFX toolkit:
+ * <pre>
+ * java -cp FinalProject.jar batch.BatchRunner algorithm input output [options]
+ * </pre>
+ * The algorithm is named by its class, e.g., <code>KMeansClusterer</code> or
+ * <code>classification.RandomClassifier</code>, see {@link RunConfiguration#findAlgorithmClass(String)}. The input
+ * is a <code>.tsd</code> file, or a binary data file if its name ends in {@value #BINARY_DATA_FILE_EXT}. The
+ * algorithm runs on the calling thread, to completion, without publishing its intermediate updates. A clusterer's
+ * output is the data with the final labels, in the <code>.tsd</code> format; a classifier's output is a single
+ * line with the tab-separated coefficients of its final line. One line of timings is printed per run, so that
+ * scripts can collect the throughput over many files.
+ * <p>
+ * Options: <code>-iterations N</code> (default {@value #DEFAULT_ITERATIONS}), <code>-interval N</code> (default:
+ * the number of iterations), <code>-clusters K</code> (default {@value #DEFAULT_CLUSTERS}), <code>-workers N</code>
+ * (default 1), <code>-seed S</code>, and <code>-stepped</code> to run a classifier that may stop early as a
+ * non-continuous one. <code>-checkpoint FILE</code> saves the state of an algorithm that supports it to the file
+ * every <code>-checkpoint-interval N</code> iterations (default {@value #DEFAULT_CHECKPOINT_INTERVAL}), and resumes
+ * from the file if an earlier run on the same data left it behind; <code>-checkpoint-interval N</code> alone keeps
+ * the checkpoint in the temporary directory.
+ *
+ * @author Aditya Taday
+ */
+public final class BatchRunner {
+
+    static final String BINARY_DATA_FILE_EXT        = ".tsdb";
+    static final int    DEFAULT_ITERATIONS          = 100;
+    static final int    DEFAULT_CLUSTERS            = 2;
+    static final int    DEFAULT_CHECKPOINT_INTERVAL = 10;
+
+    private static final String USAGE = "Usage: BatchRunner algorithm input output [-iterations N] [-interval N] "
+                                        + "[-clusters K] [-workers N] [-seed S] [-stepped] [-checkpoint FILE] "
+                                        + "[-checkpoint-interval N]";
+    private static final String NO_OUTPUT = "The algorithm produced no output";
+
+    private BatchRunner() {}
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        RunConfiguration configuration = null;
+        try {
+            configuration = parseOptions(args, 3);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            run(args[0], Paths.get(args[1]), Paths.get(args[2]), configuration);
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads the input, runs the algorithm on it, and writes the algorithm's output.
+     *
+     * @throws Exception if the input cannot be loaded, the algorithm cannot be instantiated, or the output cannot be
+     *                   written
+     */
+    public static void run(String algorithm, Path input, Path output, RunConfiguration configuration)
+            throws Exception {
+        long start = System.nanoTime();
+        TSDProcessor processor = new TSDProcessor(null);
+        processor.processDataFile(input, input.getFileName().toString().endsWith(BINARY_DATA_FILE_EXT));
+        DataSet dataset = processor.getDataSet();
+        long loaded = System.nanoTime();
+
+        Algorithm instance = configuration.newAlgorithm(algorithm, dataset);
+        if (instance instanceof Clusterer)
+            ((Clusterer) instance).setPublishing(false);
+        else if (instance instanceof Classifier)
+            ((Classifier) instance).setPublishing(false);
+        instance.run();
+        long ran = System.nanoTime();
+
+        if (instance instanceof Classifier)
+            writeClassifierOutput(((Classifier) instance).getOutput(), output);
+        else
+            writeLabels(dataset, output);
+
+        System.out.printf("%s: %d instances, load %.1f ms, run %.1f ms, write %.1f ms%n", input, dataset.size(),
+                          (loaded - start) / 1e6, (ran - loaded) / 1e6, (System.nanoTime() - ran) / 1e6);
+    }
+
+    static RunConfiguration parseOptions(String[] args, int from) {
+        int iterations = DEFAULT_ITERATIONS;
+        Integer interval = null;
+        int clusters = DEFAULT_CLUSTERS;
+        int workers = 1;
+        Long seed = null;
+        boolean continuous = true;
+        Integer checkpointInterval = null;
+        Path checkpointFile = null;
+        for (int i = from; i < args.length; i++) {
+            switch (args[i]) {
+                case "-stepped":
+                    continuous = false;
+                    break;
+                case "-iterations":
+                    iterations = Integer.parseInt(valueOf(args, ++i));
+                    break;
+                case "-interval":
+                    interval = Integer.parseInt(valueOf(args, ++i));
+                    break;
+                case "-clusters":
+                    clusters = Integer.parseInt(valueOf(args, ++i));
+                    break;
+                case "-workers":
+                    workers = Integer.parseInt(valueOf(args, ++i));
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(valueOf(args, ++i));
+                    break;
+                case "-checkpoint":
+                    checkpointFile = Paths.get(valueOf(args, ++i));
+                    break;
+                case "-checkpoint-interval":
+                    checkpointInterval = Integer.parseInt(valueOf(args, ++i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (iterations < 1 || (interval != null && interval < 1) || workers < 1
+            || (checkpointInterval != null && checkpointInterval < 1))
+            throw new IllegalArgumentException("Iterations, intervals and workers must be positive");
+        if (checkpointInterval == null)
+            checkpointInterval = checkpointFile == null ? 0 : DEFAULT_CHECKPOINT_INTERVAL;
+        return new RunConfiguration(iterations, interval == null ? iterations : interval, continuous, clusters,
+                                    workers, seed, checkpointInterval, checkpointFile);
+    }
+
+    private static String valueOf(String[] args, int index) {
+        if (index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        return args[index];
+    }
+
+    private static void writeLabels(DataSet dataset, Path output) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < dataset.size(); i++) {
+                line.setLength(0);
+                line.append(dataset.getName(i)).append('\t').append(dataset.getLabel(i)).append('\t')
+                    .append(dataset.getX(i)).append(',').append(dataset.getY(i)).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    private static void writeClassifierOutput(double[] output, Path outputPath) throws IOException {
+        if (output == null)
+            throw new IOException(NO_OUTPUT);
+        StringBuilder line = new StringBuilder();
+        for (double coefficient : output)
+            line.append(line.length() > 0 ? "\t" : "").append(coefficient);
+        Files.write(outputPath, (line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,72 @@
+package classification;
+
+import algorithms.LinearClassifier;
+import data.DataSet;
+
+/**
+ * Logistic regression, trained by mini-batch gradient descent on the log-loss. The line is where the predicted
+ * probability of the positive class is one half. The run stops once an epoch improves the mean log-loss by less
+ * than {@link #TOLERANCE}.
+ *
+ * @author Aditya Taday
+ */
+public class LogisticRegressionClassifier extends LinearClassifier {
+
+    private static final int    BATCH_SIZE    = 32;
+    private static final double LEARNING_RATE = 0.5;
+    private static final double TOLERANCE     = 1e-6;
+
+    private double previousLoss = Double.POSITIVE_INFINITY;
+
+    public LogisticRegressionClassifier(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue) {
+        super(dataset, maxIterations, updateInterval, tocontinue);
+    }
+
+    @Override
+    protected boolean epoch(int epoch) {
+        double b = bias;
+        double wx = xWeight;
+        double wy = yWeight;
+        double loss = 0;
+        int size = order.length;
+        for (int start = 0; start < size; start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, size);
+            double gradientB = 0;
+            double gradientX = 0;
+            double gradientY = 0;
+            for (int i = start; i < end; i++) {
+                int index = order[i];
+                int target = targets[index];
+                double margin = target * (b + wx * xs[index] + wy * ys[index]);
+                // the loss log(1 + e^-margin), and its derivative -1 / (1 + e^margin), without overflow
+                double slope;
+                if (margin > 0) {
+                    double e = Math.exp(-margin);
+                    loss += Math.log1p(e);
+                    slope = e / (1 + e);
+                } else {
+                    double e = Math.exp(margin);
+                    loss += Math.log1p(e) - margin;
+                    slope = 1 / (1 + e);
+                }
+                slope *= target;
+                gradientB += slope;
+                gradientX += slope * xs[index];
+                gradientY += slope * ys[index];
+            }
+            double step = LEARNING_RATE / (end - start);
+            b += step * gradientB;
+            wx += step * gradientX;
+            wy += step * gradientY;
+        }
+        bias = b;
+        xWeight = wx;
+        yWeight = wy;
+
+        // the loss is summed along the way, so it trails the weights by at most one batch
+        loss /= Math.max(1, size);
+        boolean converged = previousLoss - loss < TOLERANCE;
+        previousLoss = loss;
+        return converged;
+    }
+}
@@ -0,0 +1,38 @@
+package classification;
+
+import algorithms.LinearClassifier;
+import data.DataSet;
+
+/**
+ * The perceptron: every misclassified instance moves the line towards itself. If the two classes can be separated
+ * by a line, the run stops at the first epoch without a mistake; otherwise it runs for the maximum iterations.
+ *
+ * @author Aditya Taday
+ */
+public class PerceptronClassifier extends LinearClassifier {
+
+    public PerceptronClassifier(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue) {
+        super(dataset, maxIterations, updateInterval, tocontinue);
+    }
+
+    @Override
+    protected boolean epoch(int epoch) {
+        double b = bias;
+        double wx = xWeight;
+        double wy = yWeight;
+        int mistakes = 0;
+        for (int index : order) {
+            int target = targets[index];
+            if (target * (b + wx * xs[index] + wy * ys[index]) <= 0) {
+                b += target;
+                wx += target * xs[index];
+                wy += target * ys[index];
+                mistakes++;
+            }
+        }
+        bias = b;
+        xWeight = wx;
+        yWeight = wy;
+        return mistakes == 0;
+    }
+}
@@ -1,11 +1,12 @@
 package classification;
 
+import algorithms.AlgorithmRunner;
 import algorithms.Classifier;
 import data.DataSet;
+import metrics.Metrics;
 
 import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -59,56 +60,42 @@ public class RandomClassifier extends Classifier {
         try {
             for (int i = 1; i <= maxIterations; i++) {
 
-                if (Thread.interrupted())
-                    throw new InterruptedException();
+                AlgorithmRunner.checkpoint();
+                long iterationStart = System.nanoTime();
 
                 int xCoefficient = new Long(-1 * Math.round((2 * RAND.nextDouble() - 1) * 10)).intValue();
                 int yCoefficient = 10;
                 int constant = RAND.nextInt(11);
 
                 // this is the real output of the classifier
-                output = Arrays.asList(xCoefficient, yCoefficient, constant);
+                output = new double[]{xCoefficient, yCoefficient, constant};
 
                 // everything below is just for internal viewing of how the output is changing
                 // in the final project, such changes will be dynamically visible in the UI
                 if (i % updateInterval == 0) {
 
-                    queue.add(output);
-
-                    //For the purpose of internal viewing
-//                System.out.printf("Iteration number %d: ", i); //
-//                flush();
+                    publishOutput();
 
                 }
+                Metrics.ITERATION_NANOS.record(System.nanoTime() - iterationStart);
                 if (i > maxIterations * .6 && RAND.nextDouble() < 0.05) {
 
-                    queue.add(output);
-
-//                    //For the purpose of internal viewing
-//
-//                System.out.printf("Iteration number %d: ", i);
-//                flush();
+                    publishOutput();
 
                     break;
                 }
 
-                System.out.println("Producer Thread: Insertion in Queue. " + "Current Queue Size is: " + queue.size());
 //                Thread.sleep(1000);
 
             }
             producerIsIsDone.set(true);
         } catch (InterruptedException ex) {
-            System.out.println("Producer Thread: Interrupted");
+            // the run was cancelled, which its run handle already reports
         }
 
 
     }
 
-    // for internal viewing only
-    protected void flush() {
-        System.out.printf("%d\t%d\t%d%n", output.get(0), output.get(1), output.get(2));
-    }
-
     /**
      * A placeholder main method to just make sure this code runs smoothly
      */
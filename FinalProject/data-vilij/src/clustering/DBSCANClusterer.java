@@ -0,0 +1,438 @@
+package clustering;
+
+import algorithms.AlgorithmRunner;
+import algorithms.Checkpoint;
+import algorithms.Checkpointable;
+import algorithms.Clusterer;
+import data.DataSet;
+import metrics.Metrics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DBSCAN: a point with at least {@link #getMinPoints() minPoints} points (itself included) within
+ * {@link #getEpsilon() epsilon} of it is a core point, the core points within epsilon of each other form a cluster,
+ * together with the other points within epsilon of its core points, and all remaining points are noise. The
+ * clusters can have any shape, and their number is found by the algorithm, so the number of clusters it is given
+ * is ignored. Clusters are labeled by their number, as in {@link KMeansClusterer}, and noise by
+ * {@value #NOISE_LABEL}.
+ * <p>
+ * The epsilon-neighborhoods are found through a uniform grid with cells at least epsilon wide, so a neighborhood
+ * query only looks at the 3 x 3 cells around a point. The points are sorted into their cells once, by a counting
+ * sort, and their coordinates copied in that order, so a query reads contiguous memory. Every point is queried at
+ * most once, so a run takes one pass over the neighborhoods of all points.
+ * <p>
+ * Unless set, epsilon is estimated from the data: it is a high percentile of the distances from a sample of points
+ * to their <code>(minPoints - 1)</code>-th nearest neighbor, so that most points in clusters are core points. The
+ * default minPoints is higher than the usual 4 for two dimensions, since on large data with smooth density, such as
+ * Gaussian blobs, a low threshold splits the tails of the clusters into many small ones.
+ * <p>
+ * The scan over the points is split into the maximum number of iterations, and the labels found so far are
+ * published at the update interval, so that the clusters grow on screen as they are found. A {@link Checkpoint}
+ * saves epsilon and the clusters found so far, and a resumed run rebuilds the same grid and scans on from where the
+ * saved run stopped.
+ *
+ * @author Aditya Taday
+ */
+public class DBSCANClusterer extends Clusterer implements Checkpointable {
+
+    public static final  String NOISE_LABEL        = "noise";
+    private static final int    DEFAULT_MIN_POINTS = 16;
+    private static final int    EPSILON_SAMPLE     = 1024;
+    private static final double EPSILON_PERCENTILE = 0.9;
+
+    private static final String CHECKPOINT_MISMATCH = "The checkpoint was saved with other DBSCAN parameters";
+
+    private static final int UNVISITED = -1;
+    private static final int NOISE     = -2;
+
+    private final DataSet dataset;
+    private final int     maxIterations;
+    private final int     updateInterval;
+    private final AtomicBoolean tocontinue;
+
+    private double epsilon;
+    private int    minPoints = DEFAULT_MIN_POINTS;
+
+    private Grid  grid;
+    private int[] clusters;         // by position in the grid, the cluster number, UNVISITED or NOISE
+    private int   clusterCount;
+    private int   scanned;          // the positions before this one were scanned
+    private int[] clusterLabelIds;  // by cluster number, the label id in the dataset
+    private int   labeledClusters;  // the number of clusters with a label id
+    private int[] stack = new int[64];
+
+    public DBSCANClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters) {
+        super(numberOfClusters);
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = Math.max(1, updateInterval);
+        this.tocontinue = new AtomicBoolean(false);
+    }
+
+    @Override
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    @Override
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    @Override
+    public boolean tocontinue() {
+        return tocontinue.get();
+    }
+
+    /**
+     * @return the neighborhood radius; 0 until set or estimated by a run
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Sets the neighborhood radius; values that are not positive mean that it is estimated from the data.
+     */
+    public void setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    public int getMinPoints() {
+        return minPoints;
+    }
+
+    /**
+     * Sets the number of points, including itself, that a core point has within epsilon. Values below 1 mean 1.
+     */
+    public void setMinPoints(int minPoints) {
+        this.minPoints = Math.max(1, minPoints);
+    }
+
+    /**
+     * @return the number of clusters found so far
+     */
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    @Override
+    public void run() {
+        int size = dataset.size();
+        trackLabels(dataset);
+        tocontinue.set(true);
+        clusterLabelIds = new int[4];
+        labeledClusters = 0;
+        int noiseLabelId = dataset.labelIdOf(NOISE_LABEL);
+        int resumed = checkpoint == null ? 0 : checkpoint.restore(this, dataset);
+        if (resumed == 0) {
+            if (!(epsilon > 0))
+                epsilon = estimateEpsilon();
+            clusters = new int[size];
+            Arrays.fill(clusters, UNVISITED);
+            clusterCount = 0;
+            scanned = 0;
+        }
+        grid = new Grid(dataset.getXs(), dataset.getYs(), size, epsilon);
+
+        int iterations = Math.max(1, Math.min(maxIterations, size));
+        try {
+            if (resumed > 0)
+                publishLabels(noiseLabelId);
+            for (int iteration = resumed + 1; iteration <= iterations; iteration++) {
+                AlgorithmRunner.checkpoint();
+                long iterationStart = System.nanoTime();
+
+                int to = Math.max(scanned, (int) ((long) size * iteration / iterations));
+                for (; scanned < to; scanned++) {
+                    if (clusters[scanned] == UNVISITED)
+                        expandCluster(scanned);
+                }
+                if (iteration == iterations)
+                    tocontinue.set(false);
+
+                if (iteration % updateInterval == 0 || !tocontinue.get())
+                    publishLabels(noiseLabelId);
+                if (checkpoint != null)
+                    checkpoint.save(this, dataset, iteration);
+                Metrics.ITERATION_NANOS.record(System.nanoTime() - iterationStart);
+            }
+            if (checkpoint != null)
+                checkpoint.delete();
+            producerIsIsDone.set(true);
+        } catch (InterruptedException ex) {
+            // the run was cancelled, which its run handle already reports
+        }
+    }
+
+    /**
+     * Writes the clusters by position in the grid, shifted so that noise and unvisited points are not negative.
+     */
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeDouble(epsilon);
+        out.writeInt(minPoints);
+        out.writeInt(clusterCount);
+        out.writeInt(scanned);
+        int[] shifted = new int[clusters.length];
+        for (int position = 0; position < clusters.length; position++)
+            shifted[position] = clusters[position] - NOISE;
+        Checkpoint.writeColumn(out, shifted, shifted.length);
+    }
+
+    /**
+     * @throws IOException also if the state was saved with another epsilon than the one set, or another minPoints
+     */
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        double savedEpsilon = in.readDouble();
+        int savedMinPoints = in.readInt();
+        int savedClusterCount = in.readInt();
+        int savedScanned = in.readInt();
+        if ((epsilon > 0 && savedEpsilon != epsilon) || savedMinPoints != minPoints || !(savedEpsilon > 0))
+            throw new IOException(CHECKPOINT_MISMATCH);
+        int[] restored = Checkpoint.readColumn(in, dataset.size());
+        for (int position = 0; position < restored.length; position++)
+            restored[position] += NOISE;
+        epsilon = savedEpsilon;
+        clusterCount = savedClusterCount;
+        scanned = savedScanned;
+        clusters = restored;
+    }
+
+    /**
+     * Starts a cluster at a point that was not visited yet, if it is a core point, and adds every point density
+     * reachable from it; otherwise marks the point as noise, which a later cluster may still take as a border point.
+     */
+    private void expandCluster(int start) {
+        int count = grid.neighbors(start, epsilon);
+        if (count < minPoints) {
+            clusters[start] = NOISE;
+            return;
+        }
+        int cluster = clusterCount++;
+        clusters[start] = cluster;
+        int stackSize = push(cluster, count, 0);
+        while (stackSize > 0) {
+            int position = stack[--stackSize];
+            count = grid.neighbors(position, epsilon);
+            if (count >= minPoints)
+                stackSize = push(cluster, count, stackSize);
+        }
+    }
+
+    /**
+     * Adds the current neighbors to the cluster. The ones not visited yet are pushed, to be queried in turn; noise
+     * points were already queried, so they become border points of the cluster.
+     */
+    private int push(int cluster, int count, int stackSize) {
+        int[] neighbors = grid.neighbors;
+        for (int i = 0; i < count; i++) {
+            int neighbor = neighbors[i];
+            if (clusters[neighbor] == UNVISITED) {
+                clusters[neighbor] = cluster;
+                if (stackSize == stack.length)
+                    stack = Arrays.copyOf(stack, 2 * stackSize);
+                stack[stackSize++] = neighbor;
+            } else if (clusters[neighbor] == NOISE) {
+                clusters[neighbor] = cluster;
+            }
+        }
+        return stackSize;
+    }
+
+    private void publishLabels(int noiseLabelId) throws InterruptedException {
+        for (; labeledClusters < clusterCount; labeledClusters++) {
+            if (labeledClusters == clusterLabelIds.length)
+                clusterLabelIds = Arrays.copyOf(clusterLabelIds, 2 * labeledClusters);
+            clusterLabelIds[labeledClusters] = dataset.labelIdOf(Integer.toString(labeledClusters));
+        }
+        for (int position = 0; position < clusters.length; position++) {
+            int cluster = clusters[position];
+            if (cluster >= 0)
+                dataset.setLabelId(grid.points[position], clusterLabelIds[cluster]);
+            else if (cluster == NOISE)
+                dataset.setLabelId(grid.points[position], noiseLabelId);
+        }
+        publishChangedLabels(dataset);
+    }
+
+    /**
+     * Estimates epsilon from the distances of a random sample of points to their <code>(minPoints - 1)</code>-th
+     * nearest neighbor, found through a grid with about four points per cell.
+     */
+    private double estimateEpsilon() {
+        int size = dataset.size();
+        int k = minPoints - 1;
+        if (size <= k || k == 0)
+            return Double.MIN_VALUE;
+        double[] xs = dataset.getXs();
+        double[] ys = dataset.getYs();
+        Grid sampleGrid = new Grid(xs, ys, size, 0);
+        Random random = newRandom();
+        int samples = Math.min(size, EPSILON_SAMPLE);
+        double[] distances = new double[samples];
+        double[] nearest = new double[k];
+        for (int i = 0; i < samples; i++)
+            distances[i] = sampleGrid.kthNeighborDistance(random.nextInt(size), nearest);
+        Arrays.sort(distances);
+        double estimate = distances[(int) (EPSILON_PERCENTILE * (samples - 1))];
+        return estimate > 0 ? estimate : Double.MIN_VALUE;
+    }
+
+    /**
+     * The points sorted into square cells, row by row. The points of cell <code>c</code> are at the positions
+     * <code>[cellStarts[c], cellStarts[c + 1])</code>.
+     */
+    private static final class Grid {
+
+        private final double   minX;
+        private final double   minY;
+        private final double   cellSize;
+        private final int      columns;
+        private final int      rows;
+        private final int[]    cellStarts;
+        private final int[]    points;     // by position, the index of the point in the dataset
+        private final double[] xs;         // by position
+        private final double[] ys;
+        private final int[]    cells;      // by position, the cell of the point
+        private int[]          neighbors = new int[64];
+
+        /**
+         * @param minCellSize the smallest cell size; the cells are made larger if there would be more than about
+         *                    four times as many cells as points
+         */
+        Grid(double[] pointXs, double[] pointYs, int size, double minCellSize) {
+            double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                minX = Math.min(minX, pointXs[i]);
+                maxX = Math.max(maxX, pointXs[i]);
+                minY = Math.min(minY, pointYs[i]);
+                maxY = Math.max(maxY, pointYs[i]);
+            }
+            if (size == 0)
+                minX = maxX = minY = maxY = 0;
+            double width = maxX - minX;
+            double height = maxY - minY;
+            double cellSize = Math.max(minCellSize, Math.sqrt(width * height / (4.0 * Math.max(1, size))));
+            cellSize = Math.max(cellSize, Math.max(width, height) / (4.0 * Math.max(1, size)));
+            if (!(cellSize > 0))
+                cellSize = 1;
+            this.minX = minX;
+            this.minY = minY;
+            this.cellSize = cellSize;
+            columns = (int) (width / cellSize) + 1;
+            rows = (int) (height / cellSize) + 1;
+
+            int[] pointCells = new int[size];
+            cellStarts = new int[columns * rows + 1];
+            for (int i = 0; i < size; i++) {
+                pointCells[i] = cellOf(pointXs[i], pointYs[i]);
+                cellStarts[pointCells[i] + 1]++;
+            }
+            for (int cell = 0; cell < columns * rows; cell++)
+                cellStarts[cell + 1] += cellStarts[cell];
+            int[] next = Arrays.copyOf(cellStarts, columns * rows);
+            points = new int[size];
+            xs = new double[size];
+            ys = new double[size];
+            cells = new int[size];
+            for (int i = 0; i < size; i++) {
+                int position = next[pointCells[i]]++;
+                points[position] = i;
+                xs[position] = pointXs[i];
+                ys[position] = pointYs[i];
+                cells[position] = pointCells[i];
+            }
+        }
+
+        private int cellOf(double x, double y) {
+            int column = Math.min(columns - 1, (int) ((x - minX) / cellSize));
+            int row = Math.min(rows - 1, (int) ((y - minY) / cellSize));
+            return row * columns + column;
+        }
+
+        /**
+         * Puts the positions of the points within epsilon of the point at a position, itself included, at the start
+         * of {@link #neighbors}. Epsilon must be at most the cell size.
+         *
+         * @return the number of neighbors
+         */
+        int neighbors(int position, double epsilon) {
+            double x = xs[position];
+            double y = ys[position];
+            double epsilonSquared = epsilon * epsilon;
+            int column = cells[position] % columns;
+            int row = cells[position] / columns;
+            int count = 0;
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                int rowStart = r * columns;
+                int from = cellStarts[rowStart + Math.max(0, column - 1)];
+                int to = cellStarts[rowStart + Math.min(columns - 1, column + 1) + 1];
+                for (int other = from; other < to; other++) {
+                    double dx = xs[other] - x;
+                    double dy = ys[other] - y;
+                    if (dx * dx + dy * dy <= epsilonSquared) {
+                        if (count == neighbors.length)
+                            neighbors = Arrays.copyOf(neighbors, 2 * count);
+                        neighbors[count++] = other;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Finds the distance from a point to its k-th nearest other point, searching rings of cells outwards from
+         * its own cell until no farther ring can hold a nearer point.
+         *
+         * @param self    the position of the point
+         * @param nearest a buffer of length k, for the k smallest distances so far
+         */
+        double kthNeighborDistance(int self, double[] nearest) {
+            int k = nearest.length;
+            Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+            double x = xs[self];
+            double y = ys[self];
+            int column = cells[self] % columns;
+            int row = cells[self] / columns;
+            for (int ring = 0; ring <= Math.max(columns, rows); ring++) {
+                // every point in this ring or beyond is at least (ring - 1) cells away
+                if (ring > 0 && nearest[k - 1] <= (ring - 1) * cellSize)
+                    break;
+                for (int r = row - ring; r <= row + ring; r++) {
+                    if (r < 0 || r >= rows)
+                        continue;
+                    boolean edgeRow = r == row - ring || r == row + ring;
+                    int step = edgeRow ? 1 : 2 * ring;
+                    for (int c = column - ring; c <= column + ring; c += Math.max(1, step)) {
+                        if (c < 0 || c >= columns)
+                            continue;
+                        int cell = r * columns + c;
+                        for (int other = cellStarts[cell]; other < cellStarts[cell + 1]; other++) {
+                            if (other == self)
+                                continue;
+                            double dx = xs[other] - x;
+                            double dy = ys[other] - y;
+                            double distance = Math.sqrt(dx * dx + dy * dy);
+                            if (distance < nearest[k - 1]) {
+                                int i = k - 1;
+                                for (; i > 0 && nearest[i - 1] > distance; i--)
+                                    nearest[i] = nearest[i - 1];
+                                nearest[i] = distance;
+                            }
+                        }
+                    }
+                }
+            }
+            return nearest[k - 1];
+        }
+    }
+}
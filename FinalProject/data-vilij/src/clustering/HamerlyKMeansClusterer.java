@@ -0,0 +1,172 @@
+package clustering;
+
+import data.DataSet;
+import metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * K-Means with Hamerly's bounds, which skip the distance computations that cannot change a point's cluster. Every
+ * point keeps an upper bound on its distance to its own centroid and a lower bound on its distance to any other
+ * centroid. When a centroid moves, the bounds are loosened by how far it moved, instead of being recomputed. A point
+ * keeps its cluster without any distance computation as long as its upper bound is at most its lower bound, or at
+ * most half the distance from its centroid to the nearest other centroid. Otherwise the upper bound is tightened
+ * with one distance computation, and only if that does not settle it are all distances computed.
+ * <p>
+ * Once the centroids settle, few points are close enough to a border between clusters to need a distance, so the
+ * later iterations cost little more than a pass over the bounds. The clusters are those of {@link KMeansClusterer},
+ * except that a point at exactly the same distance from two centroids may be kept in either.
+ *
+ * @author Aditya Taday
+ */
+public class HamerlyKMeansClusterer extends KMeansClusterer {
+
+    private double[] upperBounds; // by point, at least the distance to its centroid
+    private double[] lowerBounds; // by point, at most the distance to any other centroid
+
+    private double[] previousXs;
+    private double[] previousYs;
+    private double[] moves;       // by cluster, how far its centroid moved in the last iteration
+    private double[] halfGaps;    // by cluster, half the distance from its centroid to the nearest other centroid
+    private int      fastestCluster;
+    private double   largestMove;
+    private double   secondLargestMove;
+    private boolean  boundsSet;
+
+    private final LongAdder skippedDistances  = new LongAdder();
+    private final LongAdder computedDistances = new LongAdder();
+
+    public HamerlyKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters) {
+        super(dataset, maxIterations, updateInterval, numberOfClusters);
+    }
+
+    /**
+     * @return the number of point-to-centroid distances that the bounds made unnecessary so far
+     */
+    public long getSkippedDistanceCount() {
+        return skippedDistances.sum();
+    }
+
+    /**
+     * @return the number of point-to-centroid distances computed so far
+     */
+    public long getComputedDistanceCount() {
+        return computedDistances.sum();
+    }
+
+    /**
+     * Measures how far every centroid moved since the last assignment, and how far apart the centroids are.
+     */
+    @Override
+    protected void beforeAssignment() {
+        int k = centroidXs.length;
+        if (upperBounds == null) {
+            upperBounds = new double[dataset.size()];
+            lowerBounds = new double[dataset.size()];
+            moves = new double[k];
+            halfGaps = new double[k];
+            previousXs = centroidXs.clone();
+            previousYs = centroidYs.clone();
+            boundsSet = false;
+        } else {
+            boundsSet = true;
+        }
+
+        fastestCluster = 0;
+        largestMove = 0;
+        secondLargestMove = 0;
+        for (int i = 0; i < k; i++) {
+            moves[i] = distance(centroidXs[i] - previousXs[i], centroidYs[i] - previousYs[i]);
+            if (moves[i] > largestMove) {
+                secondLargestMove = largestMove;
+                largestMove = moves[i];
+                fastestCluster = i;
+            } else if (moves[i] > secondLargestMove) {
+                secondLargestMove = moves[i];
+            }
+        }
+        System.arraycopy(centroidXs, 0, previousXs, 0, k);
+        System.arraycopy(centroidYs, 0, previousYs, 0, k);
+
+        Arrays.fill(halfGaps, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < k; i++) {
+            for (int j = i + 1; j < k; j++) {
+                double halfGap = distance(centroidXs[i] - centroidXs[j], centroidYs[i] - centroidYs[j]) / 2;
+                halfGaps[i] = Math.min(halfGaps[i], halfGap);
+                halfGaps[j] = Math.min(halfGaps[j], halfGap);
+            }
+        }
+    }
+
+    @Override
+    protected void assignAndAccumulate(int from, int to, double[] sumX, double[] sumY, int[] clusterSize) {
+        double[] xs = dataset.getXs();
+        double[] ys = dataset.getYs();
+        int k = centroidXs.length;
+        long computed = 0;
+        for (int point = from; point < to; point++) {
+            double x = xs[point];
+            double y = ys[point];
+            int cluster = assignments[point];
+            double upper;
+            double lower;
+            boolean settled = false;
+            if (boundsSet) {
+                upper = upperBounds[point] + moves[cluster];
+                lower = lowerBounds[point] - (cluster == fastestCluster ? secondLargestMove : largestMove);
+                double bound = Math.max(lower, halfGaps[cluster]);
+                if (upper <= bound) {
+                    settled = true;
+                } else {
+                    upper = distance(x - centroidXs[cluster], y - centroidYs[cluster]);
+                    computed++;
+                    settled = upper <= bound;
+                }
+            } else {
+                upper = 0;
+                lower = 0;
+            }
+
+            if (!settled) {
+                // the nearest centroid wins ties by its lower index, as in KMeansClusterer
+                int own = cluster;
+                double ownDistance = upper; // already computed if the bounds were set
+                cluster = 0;
+                upper = Double.POSITIVE_INFINITY;
+                lower = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < k; i++) {
+                    double distance;
+                    if (boundsSet && i == own) {
+                        distance = ownDistance;
+                    } else {
+                        distance = distance(x - centroidXs[i], y - centroidYs[i]);
+                        computed++;
+                    }
+                    if (distance < upper) {
+                        lower = upper;
+                        upper = distance;
+                        cluster = i;
+                    } else if (distance < lower) {
+                        lower = distance;
+                    }
+                }
+            }
+            upperBounds[point] = upper;
+            lowerBounds[point] = lower;
+            assignments[point] = cluster;
+            sumX[cluster] += x;
+            sumY[cluster] += y;
+            clusterSize[cluster]++;
+        }
+        long skipped = (long) (to - from) * k - computed;
+        computedDistances.add(computed);
+        skippedDistances.add(skipped);
+        Metrics.SKIPPED_DISTANCES.add(skipped);
+    }
+
+    /** Unlike {@link Math#hypot(double, double)}, does not guard against overflow, which is far slower. */
+    private static double distance(double dx, double dy) {
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
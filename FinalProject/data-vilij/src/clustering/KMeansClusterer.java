@@ -1,23 +1,55 @@
 package clustering;
 
 
+import algorithms.AlgorithmRunner;
+import algorithms.Checkpoint;
+import algorithms.Checkpointable;
 import algorithms.Clusterer;
 import data.DataSet;
-import javafx.geometry.Point2D;
+import metrics.Metrics;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
+ * K-Means over the primitive columns of the {@link DataSet}. The cluster of every point is kept in an
+ * <code>int</code> array, and each iteration is a single pass that assigns every point to its nearest centroid (by
+ * squared distance) while adding it to the running sums of that cluster, from which the centroids are then
+ * recomputed. An iteration allocates nothing per point; the labels are only written back to the dataset, as the
+ * cluster number, when a result is published, and only the labels that changed are handed to the consumer.
+ * <p>
+ * The points are summed in fixed-size blocks, each into its own partial sums, which are then added up in block
+ * order. With more than one worker (see {@link #setWorkerCount(int)}) the blocks are spread over a
+ * {@link ForkJoinPool}; since neither the blocks nor the order of the reduction depend on the number of workers,
+ * neither do the centroids.
+ * <p>
+ * With a {@link Checkpoint}, the centroids and assignments are saved at its interval, and a run on the same data
+ * resumes from the last saved iteration, showing the saved clusters right away.
+ *
  * @author Ritwik Banerjee
  */
-public class KMeansClusterer extends Clusterer {
+public class KMeansClusterer extends Clusterer implements Checkpointable {
 
-    private DataSet dataset;
-    private List<Point2D> centroids;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    protected DataSet dataset;
+    protected double[] centroidXs;
+    protected double[] centroidYs;
+    private int[] clusterLabelIds;
+    protected int[] assignments;
+
+    private double[] sumX;
+    private double[] sumY;
+    private int[] clusterSize;
+    private double[][] blockSumX;
+    private double[][] blockSumY;
+    private int[][] blockClusterSize;
+    private ForkJoinPool pool;
 
     private final int maxIterations;
     private final int updateInterval;
@@ -28,7 +60,7 @@ public class KMeansClusterer extends Clusterer {
         super(numberOfClusters);
         this.dataset = dataset;
         this.maxIterations = maxIterations;
-        this.updateInterval = updateInterval;
+        this.updateInterval = Math.max(1, updateInterval);
         this.tocontinue = new AtomicBoolean(false);
     }
 
@@ -50,83 +82,221 @@ public class KMeansClusterer extends Clusterer {
     @Override
     public void run() {
         initializeCentroids();
-        int iteration = 0;
+        if (workerCount > 1 && blockSumX.length > 1)
+            pool = new ForkJoinPool(workerCount);
+        int iteration = checkpoint == null ? 0 : checkpoint.restore(this, dataset);
         try {
+            if (iteration > 0)
+                publishLabels();
             while (iteration++ < maxIterations & tocontinue.get()) {
-                if (Thread.interrupted())
-                    throw new InterruptedException();
-
-                assignLabels();
-
-                HashMap<String, String> newData = new HashMap<>(dataset.getLabels());
-                queue.add(newData);
-                System.out.println("Producer Thread: Insertion in Queue. " + "Current Queue Size is: " + queue.size());
+                AlgorithmRunner.checkpoint();
+                long iterationStart = System.nanoTime();
 
+                beforeAssignment();
+                assignAndAccumulate();
                 recomputeCentroids();
 
-
+                if (iteration % updateInterval == 0 || iteration == maxIterations || !tocontinue.get())
+                    publishLabels();
+                if (checkpoint != null)
+                    checkpoint.save(this, dataset, iteration);
+                Metrics.ITERATION_NANOS.record(System.nanoTime() - iterationStart);
             }
+            if (checkpoint != null)
+                checkpoint.delete();
             producerIsIsDone.set(true);
         } catch (InterruptedException ex) {
-            System.out.println("Producer Thread: Interrupted");
+            // the run was cancelled, which its run handle already reports
+        } finally {
+            if (pool != null)
+                pool.shutdown();
         }
     }
 
     private void initializeCentroids() {
-        Set<String> chosen = new HashSet<>();
-        List<String> instanceNames = new ArrayList<>(dataset.getLabels().keySet());
-        Random r = new Random();
+        requireInstancePerCluster(dataset);
+        centroidXs = new double[numberOfClusters];
+        centroidYs = new double[numberOfClusters];
+        seedCentroids(newRandom(), centroidXs, centroidYs);
+        clusterLabelIds = new int[numberOfClusters];
+        for (int i = 0; i < numberOfClusters; i++)
+            clusterLabelIds[i] = dataset.labelIdOf(Integer.toString(i));
+        trackLabels(dataset);
+        assignments = new int[dataset.size()];
+        sumX = new double[numberOfClusters];
+        sumY = new double[numberOfClusters];
+        clusterSize = new int[numberOfClusters];
+        int blocks = (dataset.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        blockSumX = new double[blocks][numberOfClusters];
+        blockSumY = new double[blocks][numberOfClusters];
+        blockClusterSize = new int[blocks][numberOfClusters];
+        tocontinue.set(true);
+    }
+
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        Checkpoint.writeDoubles(out, centroidXs);
+        Checkpoint.writeDoubles(out, centroidYs);
+        Checkpoint.writeColumn(out, assignments, assignments.length);
+    }
+
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        double[] xs = Checkpoint.readDoubles(in, numberOfClusters);
+        double[] ys = Checkpoint.readDoubles(in, numberOfClusters);
+        int[] restored = Checkpoint.readColumn(in, dataset.size());
+        for (int cluster : restored) {
+            if (cluster >= numberOfClusters)
+                throw new IOException(Integer.toString(cluster));
+        }
+        centroidXs = xs;
+        centroidYs = ys;
+        assignments = restored;
+    }
+
+    /**
+     * Chooses the initial centroids, here distinct points picked uniformly at random.
+     */
+    protected void seedCentroids(Random random, double[] centroidXs, double[] centroidYs) {
+        Set<Integer> chosen = new LinkedHashSet<>();
         while (chosen.size() < numberOfClusters) {
-            int i = r.nextInt(instanceNames.size());
-            while (chosen.contains(instanceNames.get(i)))
-                ++i;
-            chosen.add(instanceNames.get(i));
+            int i = random.nextInt(dataset.size());
+            while (chosen.contains(i))
+                i = (i + 1) % dataset.size();
+            chosen.add(i);
+        }
+        int cluster = 0;
+        for (int i : chosen) {
+            centroidXs[cluster] = dataset.getX(i);
+            centroidYs[cluster++] = dataset.getY(i);
         }
-        centroids = chosen.stream().map(name -> dataset.getLocations().get(name)).collect(Collectors.toList());
-        tocontinue.set(true);
     }
 
-    private void assignLabels() {
-        dataset.getLocations().forEach((instanceName, location) -> {
-            double minDistance = Double.MAX_VALUE;
-            int minDistanceIndex = -1;
-            for (int i = 0; i < centroids.size(); i++) {
-                double distance = computeDistance(centroids.get(i), location);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    minDistanceIndex = i;
-                }
+    /**
+     * Called before every assignment step, once the centroids were seeded or moved. Does nothing by default.
+     */
+    protected void beforeAssignment() {}
 
+    /**
+     * Assigns every point to its nearest centroid and adds it to the sums of that cluster.
+     */
+    private void assignAndAccumulate() {
+        if (pool == null) {
+            for (int block = 0; block < blockSumX.length; block++)
+                accumulateBlock(block);
+        } else {
+            pool.invoke(new BlockTask(0, blockSumX.length));
+        }
+        Arrays.fill(sumX, 0);
+        Arrays.fill(sumY, 0);
+        Arrays.fill(clusterSize, 0);
+        for (int block = 0; block < blockSumX.length; block++) {
+            for (int i = 0; i < numberOfClusters; i++) {
+                sumX[i] += blockSumX[block][i];
+                sumY[i] += blockSumY[block][i];
+                clusterSize[i] += blockClusterSize[block][i];
             }
+        }
+    }
+
+    private void accumulateBlock(int block) {
+        Arrays.fill(blockSumX[block], 0);
+        Arrays.fill(blockSumY[block], 0);
+        Arrays.fill(blockClusterSize[block], 0);
+        int from = block * BLOCK_SIZE;
+        assignAndAccumulate(from, Math.min(from + BLOCK_SIZE, dataset.size()), blockSumX[block], blockSumY[block],
+                            blockClusterSize[block]);
+    }
+
+    /**
+     * The assignment step over the points <code>[from, to)</code>, with the cluster sums and sizes of their block.
+     * The blocks may be assigned in parallel, so an implementation may only write to the entries of its own points
+     * in any per-point array.
+     */
+    protected void assignAndAccumulate(int from, int to, double[] sumX, double[] sumY, int[] clusterSize) {
+        assignAndAccumulate(dataset.getXs(), dataset.getYs(), from, to, centroidXs, centroidYs, assignments, sumX,
+                            sumY, clusterSize);
+    }
+
+    /**
+     * Accumulates the blocks <code>[from, to)</code>, splitting the range in halves down to single blocks.
+     */
+    private final class BlockTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        BlockTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
 
-            dataset.getLabels().put(instanceName, Integer.toString(minDistanceIndex));
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                accumulateBlock(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockTask(from, middle), new BlockTask(middle, to));
+            }
+        }
+    }
 
-        });
+    /**
+     * The assignment step over the points <code>[from, to)</code>; the cluster sums and sizes are added to, not reset.
+     */
+    static void assignAndAccumulate(double[] xs, double[] ys, int from, int to, double[] centroidXs,
+                                    double[] centroidYs, int[] assignments, double[] sumX, double[] sumY,
+                                    int[] clusterSize) {
+        int k = centroidXs.length;
+        for (int point = from; point < to; point++) {
+            double x = xs[point];
+            double y = ys[point];
+            int nearest = 0;
+            double dx = x - centroidXs[0];
+            double dy = y - centroidYs[0];
+            double minDistance = dx * dx + dy * dy;
+            for (int i = 1; i < k; i++) {
+                dx = x - centroidXs[i];
+                dy = y - centroidYs[i];
+                double distance = dx * dx + dy * dy;
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearest = i;
+                }
+            }
+            assignments[point] = nearest;
+            sumX[nearest] += x;
+            sumY[nearest] += y;
+            clusterSize[nearest]++;
+        }
     }
 
+    /**
+     * Moves every centroid to the mean of its cluster, and stops the run once none of them moves. A cluster that lost
+     * all of its points keeps its centroid.
+     */
     private void recomputeCentroids() {
         tocontinue.set(false);
-        IntStream.range(0, numberOfClusters).forEach(i -> {
-            AtomicInteger clusterSize = new AtomicInteger();
-            Point2D sum = dataset.getLabels()
-                    .entrySet()
-                    .stream()
-                    .filter(entry -> i == Integer.parseInt(entry.getValue()))
-                    .map(entry -> dataset.getLocations().get(entry.getKey()))
-                    .reduce(new Point2D(0, 0), (p, q) -> {
-                        clusterSize.incrementAndGet();
-                        return new Point2D(p.getX() + q.getX(), p.getY() + q.getY());
-                    });
-            Point2D newCentroid = new Point2D(sum.getX() / clusterSize.get(), sum.getY() / clusterSize.get());
-            if (!newCentroid.equals(centroids.get(i))) {
-                centroids.set(i, newCentroid);
+        for (int i = 0; i < numberOfClusters; i++) {
+            if (clusterSize[i] == 0)
+                continue;
+            double x = sumX[i] / clusterSize[i];
+            double y = sumY[i] / clusterSize[i];
+            if (x != centroidXs[i] || y != centroidYs[i]) {
+                centroidXs[i] = x;
+                centroidYs[i] = y;
                 tocontinue.set(true);
             }
-        });
+        }
     }
 
-    private static double computeDistance(Point2D p, Point2D q) {
-        return Math.sqrt(Math.pow(p.getX() - q.getX(), 2) + Math.pow(p.getY() - q.getY(), 2));
+    private void publishLabels() throws InterruptedException {
+        for (int point = 0; point < assignments.length; point++)
+            dataset.setLabelId(point, clusterLabelIds[assignments[point]]);
+        publishChangedLabels(dataset);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package clustering;
+
+import data.DataSet;
+
+import java.util.Random;
+
+/**
+ * K-Means with K-Means++ seeding: the first centroid is a point picked uniformly at random, and every further
+ * centroid is a point picked with probability proportional to its squared distance from the nearest centroid chosen
+ * so far. Spreading the seeds out this way usually lets the iterations converge in far fewer steps than uniform
+ * seeding does.
+ *
+ * @author Aditya Taday
+ */
+public class KMeansPlusPlusClusterer extends KMeansClusterer {
+
+    public KMeansPlusPlusClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters) {
+        super(dataset, maxIterations, updateInterval, numberOfClusters);
+    }
+
+    @Override
+    protected void seedCentroids(Random random, double[] centroidXs, double[] centroidYs) {
+        seed(dataset.getXs(), dataset.getYs(), dataset.size(), random, centroidXs, centroidYs);
+    }
+
+    /**
+     * Picks <code>centroidXs.length</code> centroids among the first <code>size</code> points by K-Means++ seeding.
+     */
+    static void seed(double[] xs, double[] ys, int size, Random random, double[] centroidXs, double[] centroidYs) {
+        double[] distance = new double[size];
+        int chosen = random.nextInt(size);
+        centroidXs[0] = xs[chosen];
+        centroidYs[0] = ys[chosen];
+        double total = 0;
+        for (int point = 0; point < size; point++) {
+            double dx = xs[point] - centroidXs[0];
+            double dy = ys[point] - centroidYs[0];
+            distance[point] = dx * dx + dy * dy;
+            total += distance[point];
+        }
+
+        for (int cluster = 1; cluster < centroidXs.length; cluster++) {
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                chosen = size - 1;
+                for (int point = 0; point < size; point++) {
+                    target -= distance[point];
+                    if (target < 0) {
+                        chosen = point;
+                        break;
+                    }
+                }
+            } else {
+                // every point coincides with a centroid already
+                chosen = random.nextInt(size);
+            }
+            centroidXs[cluster] = xs[chosen];
+            centroidYs[cluster] = ys[chosen];
+
+            total = 0;
+            for (int point = 0; point < size; point++) {
+                double dx = xs[point] - centroidXs[cluster];
+                double dy = ys[point] - centroidYs[cluster];
+                distance[point] = Math.min(distance[point], dx * dx + dy * dy);
+                total += distance[point];
+            }
+        }
+    }
+}
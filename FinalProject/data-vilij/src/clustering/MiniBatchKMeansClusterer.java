@@ -0,0 +1,186 @@
+package clustering;
+
+import algorithms.AlgorithmRunner;
+import algorithms.Checkpoint;
+import algorithms.Checkpointable;
+import algorithms.Clusterer;
+import data.DataSet;
+import metrics.Metrics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mini-batch K-Means (Sculley, 2010). Each iteration draws a small random batch of points, assigns the batch to the
+ * nearest centroids, and moves every centroid towards its batch points with a learning rate of one over the number
+ * of points it has been given so far. An iteration therefore costs time in proportion to the batch size rather than
+ * to the dataset, and apart from the dataset itself the memory used is bounded by the batch and the seeding sample.
+ * The centroids are seeded by K-Means++ over a random sample of the points.
+ * <p>
+ * Mini-batch centroids keep moving slightly from batch to batch, so the run always takes the maximum number of
+ * iterations. All points are only labeled when a result is published. A {@link Checkpoint} saves the centroids with
+ * the number of points each was given, which sets its learning rate; the batches after a resume are drawn anew.
+ *
+ * @author Aditya Taday
+ */
+public class MiniBatchKMeansClusterer extends Clusterer implements Checkpointable {
+
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final int SEEDING_SAMPLE     = 10000;
+
+    private DataSet dataset;
+    private double[] centroidXs;
+    private double[] centroidYs;
+    private long[] clusterSize;
+    private int[] clusterLabelIds;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final int maxIterations;
+    private final int updateInterval;
+    private final AtomicBoolean tocontinue;
+
+
+    public MiniBatchKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, int numberOfClusters) {
+        super(numberOfClusters);
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = Math.max(1, updateInterval);
+        this.tocontinue = new AtomicBoolean(false);
+    }
+
+    @Override
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    @Override
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    @Override
+    public boolean tocontinue() {
+        return tocontinue.get();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public void run() {
+        Random random = newRandom();
+        initializeCentroids(random);
+        int[] batch = new int[batchSize];
+        int[] batchClusters = new int[batchSize];
+        int iteration = checkpoint == null ? 0 : checkpoint.restore(this, dataset);
+        try {
+            if (iteration > 0)
+                publishLabels();
+            while (iteration++ < maxIterations) {
+                AlgorithmRunner.checkpoint();
+                long iterationStart = System.nanoTime();
+
+                for (int i = 0; i < batchSize; i++) {
+                    batch[i] = random.nextInt(dataset.size());
+                    batchClusters[i] = nearest(dataset.getXs()[batch[i]], dataset.getYs()[batch[i]]);
+                }
+                updateCentroids(batch, batchClusters);
+
+                if (iteration % updateInterval == 0 || iteration == maxIterations)
+                    publishLabels();
+                if (checkpoint != null)
+                    checkpoint.save(this, dataset, iteration);
+                Metrics.ITERATION_NANOS.record(System.nanoTime() - iterationStart);
+            }
+            if (checkpoint != null)
+                checkpoint.delete();
+            producerIsIsDone.set(true);
+        } catch (InterruptedException ex) {
+            // the run was cancelled, which its run handle already reports
+        }
+    }
+
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        Checkpoint.writeDoubles(out, centroidXs);
+        Checkpoint.writeDoubles(out, centroidYs);
+        for (long size : clusterSize)
+            out.writeLong(size);
+    }
+
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        double[] xs = Checkpoint.readDoubles(in, numberOfClusters);
+        double[] ys = Checkpoint.readDoubles(in, numberOfClusters);
+        long[] sizes = new long[numberOfClusters];
+        for (int i = 0; i < numberOfClusters; i++)
+            sizes[i] = in.readLong();
+        centroidXs = xs;
+        centroidYs = ys;
+        clusterSize = sizes;
+    }
+
+    private void initializeCentroids(Random random) {
+        requireInstancePerCluster(dataset);
+        int sampleSize = Math.min(dataset.size(), SEEDING_SAMPLE);
+        double[] sampleXs = new double[sampleSize];
+        double[] sampleYs = new double[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            int point = sampleSize == dataset.size() ? i : random.nextInt(dataset.size());
+            sampleXs[i] = dataset.getX(point);
+            sampleYs[i] = dataset.getY(point);
+        }
+        centroidXs = new double[numberOfClusters];
+        centroidYs = new double[numberOfClusters];
+        KMeansPlusPlusClusterer.seed(sampleXs, sampleYs, sampleSize, random, centroidXs, centroidYs);
+        clusterSize = new long[numberOfClusters];
+        clusterLabelIds = new int[numberOfClusters];
+        for (int i = 0; i < numberOfClusters; i++)
+            clusterLabelIds[i] = dataset.labelIdOf(Integer.toString(i));
+        trackLabels(dataset);
+        tocontinue.set(true);
+    }
+
+    /**
+     * Moves every centroid towards the batch points assigned to it, with a per-centroid learning rate.
+     */
+    private void updateCentroids(int[] batch, int[] batchClusters) {
+        for (int i = 0; i < batch.length; i++) {
+            int cluster = batchClusters[i];
+            double rate = 1.0 / ++clusterSize[cluster];
+            centroidXs[cluster] += rate * (dataset.getXs()[batch[i]] - centroidXs[cluster]);
+            centroidYs[cluster] += rate * (dataset.getYs()[batch[i]] - centroidYs[cluster]);
+        }
+    }
+
+    private int nearest(double x, double y) {
+        int nearest = 0;
+        double minDistance = Double.MAX_VALUE;
+        for (int i = 0; i < numberOfClusters; i++) {
+            double dx = x - centroidXs[i];
+            double dy = y - centroidYs[i];
+            double distance = dx * dx + dy * dy;
+            if (distance < minDistance) {
+                minDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    private void publishLabels() throws InterruptedException {
+        double[] xs = dataset.getXs();
+        double[] ys = dataset.getYs();
+        for (int point = 0; point < dataset.size(); point++)
+            dataset.setLabelId(point, clusterLabelIds[nearest(xs[point], ys[point])]);
+        publishChangedLabels(dataset);
+    }
+}
@@ -1,10 +1,11 @@
 package clustering;
 
+import algorithms.AlgorithmRunner;
 import algorithms.Clusterer;
 import data.DataSet;
+import metrics.Metrics;
 import javafx.geometry.Point2D;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -51,30 +52,34 @@ public class RandomClusterer extends Clusterer {
     @Override
     public void run() {
         int iteration = 0;
+        trackLabels(dataset);
         try {
             while (iteration++ < maxIterations) {
-                if (Thread.interrupted())
-                    throw new InterruptedException();
+                AlgorithmRunner.checkpoint();
+                long iterationStart = System.nanoTime();
 
                 assignLabels();
 
                 if (iteration % updateInterval == 0) {
 
-                    HashMap<String, String> newData = new HashMap<>(dataset.getLabels());
-                    queue.add(newData);
-                    System.out.println("Producer Thread: Insertion in Queue. " + "Current Queue Size is: " + queue.size());
+                    publishChangedLabels(dataset);
 
                 }
+                Metrics.ITERATION_NANOS.record(System.nanoTime() - iterationStart);
 
             }
             producerIsIsDone.set(true);
         } catch (InterruptedException ex) {
-            System.out.println("Producer Thread: Interrupted");
+            // the run was cancelled, which its run handle already reports
         }
     }
 
+    // by position rather than through the label map, whose lookups by name would decode every lazily read name
     private void assignLabels() {
-        dataset.getLabels().forEach((key, value) -> dataset.getLabels().replace(key, String.valueOf(RAND.nextInt(numberOfClusters))));
-
+        int[] clusterLabelIds = new int[numberOfClusters];
+        for (int i = 0; i < numberOfClusters; i++)
+            clusterLabelIds[i] = dataset.labelIdOf(String.valueOf(i));
+        for (int i = 0; i < dataset.size(); i++)
+            dataset.setLabelId(i, clusterLabelIds[RAND.nextInt(numberOfClusters)]);
     }
 }
\ No newline at end of file
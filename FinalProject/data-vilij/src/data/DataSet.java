@@ -6,9 +6,8 @@ import javafx.geometry.Point2D;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.NoSuchElementException;
+import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * This class specifies how an algorithm will expect the dataset to be. It is
@@ -17,8 +16,25 @@ import java.util.NoSuchElementException;
  * completely write your own class to represent a set of data instances as long
  * as the algorithm can read from and write into two {@link java.util.Map}
  * objects representing the name-to-label map and the name-to-location (i.e.,
- * the x,y values) map. These two are the {@link DataSet#labels} and
- * {@link DataSet#locations} maps in this class.
+ * the x,y values) map. These two are the {@link DataSet#getLabels()} and
+ * {@link DataSet#getLocations()} maps in this class.
+ * <p>
+ * Internally the instances are stored column-wise: one primitive array each for
+ * the x and y coordinates, an <code>int</code> array of label ids into a small
+ * label dictionary, and a name-to-index table. The two maps are lazy views over
+ * these columns, so algorithms that need speed can read the columns directly
+ * through {@link #getXs()}, {@link #getYs()} and {@link #getLabelIds()}.
+ * <p>
+ * A {@link #snapshot()} shares the columns of its dataset instead of copying them, so that an algorithm can start on
+ * any amount of data in constant time, and several runs share one copy of the coordinates. Shared columns are
+ * copied on write: whichever of the datasets changes a column first copies it, and the other keeps the original.
+ * The coordinates and names are copied together, and the label ids on their own, so an algorithm that relabels its
+ * snapshot copies only the label ids.
+ * <p>
+ * Lookups by name, through {@link #indexOf(String)}, {@link #updateLabel(String, String)} or the map views, go
+ * through a name-to-index table that is built on the first such lookup. For a dataset whose names are decoded
+ * lazily, building it decodes every name, so the algorithms and the plot, which run on every iteration or frame,
+ * only ever address instances by position.
  *
  * @author Ritwik Banerjee
  */
@@ -33,6 +49,8 @@ public class DataSet {
         }
     }
 
+    private static final int INITIAL_CAPACITY = 16;
+
     private static String nameFormatCheck(String name) throws InvalidDataNameException {
         if (!name.startsWith("@")) {
             throw new InvalidDataNameException(name);
@@ -45,15 +63,37 @@ public class DataSet {
         return new Point2D(Double.parseDouble(coordinateStrings[0]), Double.parseDouble(coordinateStrings[1]));
     }
 
-    private Map<String, String> labels;
+    private String[] names;
+    private IntFunction<String> nameSource;
+    private double[] xs;
+    private double[] ys;
+    private int[]    labelIds;
+    private int      size;
+
+    private final List<String>         labelDictionary;
+    private final Map<String, Integer> labelIndex;
+    private Map<String, Integer>       nameIndex;
+
+    private Map<String, String>  labels;
     private Map<String, Point2D> locations;
 
+    private SpatialIndex spatialIndex; // built on the first query after the locations changed
+
+    // whether the names, coordinates and name index, or the label ids, may be shared with other datasets
+    private boolean columnsShared;
+    private boolean labelIdsShared;
+
     /**
      * Creates an empty dataset.
      */
     public DataSet() {
-        labels = new HashMap<>();
-        locations = new HashMap<>();
+        names = new String[INITIAL_CAPACITY];
+        xs = new double[INITIAL_CAPACITY];
+        ys = new double[INITIAL_CAPACITY];
+        labelIds = new int[INITIAL_CAPACITY];
+        labelDictionary = new ArrayList<>();
+        labelIndex = new HashMap<>();
+        nameIndex = new HashMap<>();
     }
 
 
@@ -64,29 +104,389 @@ public class DataSet {
      * @param locations
      */
     public DataSet(Map<String, String> labels, Map<String, Point2D> locations) {
-        this.labels = new HashMap<>(labels);
-        this.locations = new HashMap<>(locations);
+        this();
+        labels.forEach((name, label) -> {
+            Point2D location = locations.get(name);
+            addInstance(name, label, location.getX(), location.getY());
+        });
+    }
+
+    /**
+     * Creates a copy of the given dataset. The columns are copied, so changes to
+     * one dataset are not visible in the other.
+     *
+     * @param other the dataset to copy
+     */
+    public DataSet(DataSet other) {
+        size = other.size;
+        int capacity = Math.max(size, INITIAL_CAPACITY);
+        names = other.names == null ? null : Arrays.copyOf(other.names, capacity);
+        nameSource = other.nameSource;
+        xs = Arrays.copyOf(other.xs, capacity);
+        ys = Arrays.copyOf(other.ys, capacity);
+        labelIds = Arrays.copyOf(other.labelIds, capacity);
+        labelDictionary = new ArrayList<>(other.labelDictionary);
+        labelIndex = new HashMap<>(other.labelIndex);
+        nameIndex = other.nameIndex == null ? null : new HashMap<>(other.nameIndex);
+        spatialIndex = other.spatialIndex;
+    }
+
+    /**
+     * Creates a dataset that shares the columns of the given one, see {@link #snapshot()}.
+     */
+    private DataSet(DataSet other, boolean shared) {
+        size = other.size;
+        names = other.names;
+        nameSource = other.nameSource;
+        xs = other.xs;
+        ys = other.ys;
+        labelIds = other.labelIds;
+        nameIndex = other.nameIndex;
+        spatialIndex = other.spatialIndex;
+        labelDictionary = new ArrayList<>(other.labelDictionary);
+        labelIndex = new HashMap<>(other.labelIndex);
+        columnsShared = labelIdsShared = shared;
+        other.columnsShared = other.labelIdsShared = shared;
+    }
+
+    /**
+     * Creates a dataset over existing columns whose instance names are not held in memory, but are decoded from
+     * their source only when they are asked for. The name-to-index table is likewise only built on the first
+     * lookup by name. This is meant for datasets read from memory-mapped files that are too large to keep every
+     * name on the heap.
+     *
+     * @param size       the number of instances
+     * @param xs         the x column, taken over without copying
+     * @param ys         the y column, taken over without copying
+     * @param labelIds   the label id column, taken over without copying
+     * @param labels     the label dictionary that the ids refer to
+     * @param nameSource decodes the name of the instance at a given index
+     */
+    public DataSet(int size, double[] xs, double[] ys, int[] labelIds, List<String> labels,
+                   IntFunction<String> nameSource) {
+        this.size = size;
+        this.xs = xs;
+        this.ys = ys;
+        this.labelIds = labelIds;
+        this.nameSource = nameSource;
+        labelDictionary = new ArrayList<>();
+        labelIndex = new HashMap<>();
+        labels.forEach(this::labelIdOf);
     }
 
     public Map<String, String> getLabels() {
+        if (labels == null)
+            labels = new LabelView();
         return labels;
     }
 
     public Map<String, Point2D> getLocations() {
+        if (locations == null)
+            locations = new LocationView();
         return locations;
     }
 
+    /** @return the number of instances in this dataset */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the x column; only the first {@link #size()} entries are valid, and the
+     * array must not be modified
+     */
+    public double[] getXs() {
+        return xs;
+    }
+
+    /**
+     * @return the y column; only the first {@link #size()} entries are valid, and the
+     * array must not be modified
+     */
+    public double[] getYs() {
+        return ys;
+    }
+
+    /**
+     * @return the label id column; only the first {@link #size()} entries are valid, and
+     * the array must not be modified. Use {@link #setLabelId(int, int)} to relabel.
+     */
+    public int[] getLabelIds() {
+        return labelIds;
+    }
+
+    /**
+     * @return the label id column as it is now, which this dataset copies before relabeling anything, so that the
+     * array never changes; only the first {@link #size()} entries are valid
+     */
+    public int[] getLabelIdsSnapshot() {
+        labelIdsShared = true;
+        return labelIds;
+    }
+
+    /**
+     * Takes a snapshot of this dataset in constant time. The snapshot has the same instances and labels, and shares
+     * the columns with this dataset until either of them changes one, so changes to one dataset are not visible in
+     * the other, as with {@link #DataSet(DataSet)}.
+     */
+    public DataSet snapshot() {
+        return new DataSet(this, true);
+    }
+
+    public String getName(int index) {
+        return nameAt(checkIndex(index));
+    }
+
+    public double getX(int index) {
+        return xs[checkIndex(index)];
+    }
+
+    public double getY(int index) {
+        return ys[checkIndex(index)];
+    }
+
+    public String getLabel(int index) {
+        return labelDictionary.get(labelIds[checkIndex(index)]);
+    }
+
+    /**
+     * @return the position of the named instance in the columns, or <code>-1</code>
+     * if there is no such instance
+     */
+    public int indexOf(String instanceName) {
+        Integer index = nameIndex().get(instanceName);
+        return index == null ? -1 : index;
+    }
+
+    /** @return the number of entries in the label dictionary, including labels no longer in use */
+    public int labelCount() {
+        return labelDictionary.size();
+    }
+
+    public String labelOf(int labelId) {
+        return labelDictionary.get(labelId);
+    }
+
+    /**
+     * Returns the dictionary id of a label, adding the label to the dictionary if it
+     * is not there yet.
+     */
+    public int labelIdOf(String label) {
+        Integer id = labelIndex.get(label);
+        if (id == null) {
+            id = labelDictionary.size();
+            labelDictionary.add(label);
+            labelIndex.put(label, id);
+        }
+        return id;
+    }
+
+    /** @return the labels assigned to at least one instance */
+    public Set<String> distinctLabels() {
+        boolean[] used = new boolean[labelDictionary.size()];
+        for (int i = 0; i < size; i++)
+            used[labelIds[i]] = true;
+        Set<String> distinct = new HashSet<>();
+        for (int id = 0; id < used.length; id++) {
+            if (used[id])
+                distinct.add(labelDictionary.get(id));
+        }
+        return distinct;
+    }
+
+    /**
+     * Appends an instance to the dataset.
+     *
+     * @throws IllegalArgumentException if an instance with the same name already exists
+     */
+    public void addInstance(String instanceName, String label, double x, double y) {
+        if (nameIndex().containsKey(instanceName))
+            throw new IllegalArgumentException(instanceName);
+        ownColumns();
+        ownLabelIds();
+        if (names == null)
+            materializeNames();
+        if (size == xs.length)
+            grow();
+        names[size] = instanceName;
+        xs[size] = x;
+        ys[size] = y;
+        labelIds[size] = labelIdOf(label);
+        nameIndex.put(instanceName, size);
+        size++;
+        spatialIndex = null;
+    }
+
+    public void setLabel(int index, String label) {
+        checkIndex(index);
+        ownLabelIds();
+        labelIds[index] = labelIdOf(label);
+    }
+
+    public void setLabelId(int index, int labelId) {
+        if (labelId < 0 || labelId >= labelDictionary.size())
+            throw new IllegalArgumentException(Integer.toString(labelId));
+        checkIndex(index);
+        ownLabelIds();
+        labelIds[index] = labelId;
+    }
+
     public void updateLabel(String instanceName, String newlabel) {
-        if (labels.get(instanceName) == null) {
+        int index = indexOf(instanceName);
+        if (index < 0) {
             throw new NoSuchElementException();
         }
-        labels.put(instanceName, newlabel);
+        setLabel(index, newlabel);
+    }
+
+    /**
+     * Removes an instance in constant time by moving the last instance into its place, so
+     * the column order of the remaining instances is not preserved.
+     *
+     * @return the label id of the removed instance
+     * @throws NoSuchElementException if there is no instance with the given name
+     */
+    public int removeInstance(String instanceName) {
+        int index = indexOf(instanceName);
+        if (index < 0) {
+            throw new NoSuchElementException(instanceName);
+        }
+        ownColumns();
+        ownLabelIds();
+        if (names == null)
+            materializeNames();
+        int labelId = labelIds[index];
+        int last = --size;
+        nameIndex.remove(instanceName);
+        if (index != last) {
+            names[index] = names[last];
+            xs[index] = xs[last];
+            ys[index] = ys[last];
+            labelIds[index] = labelIds[last];
+            nameIndex.put(names[index], index);
+        }
+        names[last] = null;
+        spatialIndex = null;
+        return labelId;
+    }
+
+    /**
+     * Removes all instances and labels.
+     */
+    public void clear() {
+        if (names == null || nameSource != null || columnsShared || labelIdsShared) {
+            names = new String[INITIAL_CAPACITY];
+            xs = new double[INITIAL_CAPACITY];
+            ys = new double[INITIAL_CAPACITY];
+            labelIds = new int[INITIAL_CAPACITY];
+            nameSource = null;
+            columnsShared = labelIdsShared = false;
+        } else {
+            Arrays.fill(names, 0, size, null);
+        }
+        size = 0;
+        labelDictionary.clear();
+        labelIndex.clear();
+        nameIndex = new HashMap<>();
+        spatialIndex = null;
     }
 
     private void addInstance(String tsdLine) throws InvalidDataNameException {
         String[] arr = tsdLine.split("\t");
-        labels.put(nameFormatCheck(arr[0]), arr[1]);
-        locations.put(arr[0], locationOf(arr[2]));
+        Point2D location = locationOf(arr[2]);
+        addInstance(nameFormatCheck(arr[0]), arr[1], location.getX(), location.getY());
+    }
+
+    /**
+     * Finds the instance nearest to a location, e.g., the one under the mouse.
+     *
+     * @param maxDistance how far the instance may be from the location
+     * @return the position of the instance in the columns, or <code>-1</code> if no instance is close enough
+     */
+    public int nearestInstance(double x, double y, double maxDistance) {
+        return spatialIndex().nearest(x, y, maxDistance);
+    }
+
+    /**
+     * @return the positions of the instances in the given rectangle, borders included, in no particular order
+     */
+    public int[] instancesIn(double minX, double minY, double maxX, double maxY) {
+        return spatialIndex().within(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @return the positions of the instances at most the given distance from a location, in no particular order
+     */
+    public int[] instancesWithin(double x, double y, double radius) {
+        return spatialIndex().within(x, y, radius);
+    }
+
+    /**
+     * The index of the current locations, built on demand, so that a dataset that changes between queries only pays
+     * for one build per query, and one that changes without being queried pays nothing.
+     */
+    private SpatialIndex spatialIndex() {
+        if (spatialIndex == null)
+            spatialIndex = new SpatialIndex(xs, ys, size);
+        return spatialIndex;
+    }
+
+    /** Copies the names, coordinates and name index if they may be shared, before they are changed. */
+    private void ownColumns() {
+        if (!columnsShared)
+            return;
+        int capacity = Math.max(size, INITIAL_CAPACITY);
+        names = names == null ? null : Arrays.copyOf(names, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        nameIndex = nameIndex == null ? null : new HashMap<>(nameIndex);
+        columnsShared = false;
+    }
+
+    /** Copies the label ids if they may be shared, before they are changed. */
+    private void ownLabelIds() {
+        if (!labelIdsShared)
+            return;
+        labelIds = Arrays.copyOf(labelIds, Math.max(xs.length, INITIAL_CAPACITY));
+        labelIdsShared = false;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        return index;
+    }
+
+    private String nameAt(int index) {
+        return names != null ? names[index] : nameSource.apply(index);
+    }
+
+    /** Builds the name-to-index table on first use, decoding every lazily sourced name. */
+    private Map<String, Integer> nameIndex() {
+        if (nameIndex == null) {
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < size; i++)
+                index.put(nameAt(i), i);
+            nameIndex = index;
+        }
+        return nameIndex;
+    }
+
+    /** Decodes every lazily sourced name, so that the dataset can grow. */
+    private void materializeNames() {
+        String[] decoded = new String[xs.length];
+        for (int i = 0; i < size; i++)
+            decoded[i] = nameSource.apply(i);
+        names = decoded;
+        nameSource = null;
+    }
+
+    private void grow() {
+        int capacity = xs.length + (xs.length >> 1) + 1;
+        names = Arrays.copyOf(names, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        labelIds = Arrays.copyOf(labelIds, capacity);
     }
 
     public static DataSet fromTSDFile(Path tsdFilePath) throws IOException {
@@ -101,8 +501,114 @@ public class DataSet {
         return dataset;
     }
 
+    /**
+     * @return a {@link #snapshot()} of the processed data, for an algorithm to run on
+     */
     public static DataSet fromTSDProcessor(TSDProcessor processor) {
-        DataSet dataset = new DataSet(processor.getDataLabels(), processor.getDataPoints());
-        return dataset;
+        return processor.getDataSet().snapshot();
+    }
+
+    /**
+     * Base for the two map views: keys are the instance names, in column order.
+     */
+    private abstract class ColumnView<V> extends AbstractMap<String, V> {
+
+        abstract V valueAt(int index);
+
+        abstract void setValueAt(int index, V value);
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return nameIndex().containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            Integer index = nameIndex().get(key);
+            return index == null ? null : valueAt(index);
+        }
+
+        /**
+         * Replaces the value of an existing instance. New instances can only be
+         * added through {@link DataSet#addInstance(String, String, double, double)}.
+         */
+        @Override
+        public V put(String key, V value) {
+            Integer index = nameIndex().get(key);
+            if (index == null)
+                throw new UnsupportedOperationException(key);
+            V old = valueAt(index);
+            setValueAt(index, value);
+            return old;
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new Iterator<Entry<String, V>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            if (next >= size)
+                                throw new NoSuchElementException();
+                            final int index = next++;
+                            return new SimpleEntry<String, V>(nameAt(index), valueAt(index)) {
+                                @Override
+                                public V setValue(V value) {
+                                    setValueAt(index, value);
+                                    return super.setValue(value);
+                                }
+                            };
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private final class LabelView extends ColumnView<String> {
+        @Override
+        String valueAt(int index) {
+            return labelDictionary.get(labelIds[index]);
+        }
+
+        @Override
+        void setValueAt(int index, String value) {
+            ownLabelIds();
+            labelIds[index] = labelIdOf(value);
+        }
+    }
+
+    private final class LocationView extends ColumnView<Point2D> {
+        @Override
+        Point2D valueAt(int index) {
+            return new Point2D(xs[index], ys[index]);
+        }
+
+        @Override
+        void setValueAt(int index, Point2D value) {
+            ownColumns();
+            xs[index] = value.getX();
+            ys[index] = value.getY();
+            spatialIndex = null;
+        }
     }
 }
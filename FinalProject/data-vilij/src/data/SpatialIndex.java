@@ -0,0 +1,215 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * A k-d tree over the locations of a {@link DataSet}, for nearest-instance, rectangle and radius queries. The tree
+ * is implicit: the instances are reordered so that every node is a range of positions whose middle position holds
+ * the median along the node's axis, with the smaller instances before it and the larger ones after it. The axes
+ * alternate between x and y by depth, and ranges of at most {@link #LEAF_SIZE} instances are scanned instead of
+ * being split further. The coordinates are copied in that order, so a query reads contiguous memory, and the tree
+ * needs no nodes or pointers.
+ * <p>
+ * The index is a snapshot of the locations it was built from, and does not change afterwards, so it can be shared
+ * by datasets with the same locations and queried from several threads.
+ *
+ * @author Aditya Taday
+ */
+final class SpatialIndex {
+
+    private static final int LEAF_SIZE = 8;
+
+    private final int[]    instances; // by position, the index of the instance in the dataset
+    private final double[] xs;        // by position
+    private final double[] ys;
+
+    SpatialIndex(double[] instanceXs, double[] instanceYs, int size) {
+        instances = new int[size];
+        xs = new double[size];
+        ys = new double[size];
+        for (int i = 0; i < size; i++)
+            instances[i] = i;
+        System.arraycopy(instanceXs, 0, xs, 0, size);
+        System.arraycopy(instanceYs, 0, ys, 0, size);
+        build(0, size, true);
+    }
+
+    private void build(int from, int to, boolean byX) {
+        while (to - from > LEAF_SIZE) {
+            int middle = (from + to) >>> 1;
+            select(from, to, middle, byX ? xs : ys);
+            build(from, middle, !byX);
+            from = middle + 1;
+            byX = !byX;
+        }
+    }
+
+    /**
+     * Moves the instance with the k-th smallest key within <code>[from, to)</code> to position k, with no larger
+     * keys before it and no smaller keys after it.
+     */
+    private void select(int from, int to, int k, double[] keys) {
+        int low = from;
+        int high = to - 1;
+        while (high > low) {
+            double pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot)
+                    i++;
+                while (keys[j] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            if (k <= j)
+                high = j;
+            else if (k >= i)
+                low = i;
+            else
+                return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int instance = instances[i];
+        instances[i] = instances[j];
+        instances[j] = instance;
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+
+    /**
+     * @return the index of the instance nearest to the given location and at most the given distance away, or
+     * <code>-1</code> if there is none
+     */
+    int nearest(double x, double y, double maxDistance) {
+        Nearest nearest = new Nearest(maxDistance * maxDistance);
+        nearest(0, instances.length, true, x, y, nearest);
+        return nearest.instance;
+    }
+
+    private void nearest(int from, int to, boolean byX, double x, double y, Nearest nearest) {
+        if (to - from <= LEAF_SIZE) {
+            for (int position = from; position < to; position++)
+                nearest.offer(position, x, y);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        nearest.offer(middle, x, y);
+        double offset = byX ? x - xs[middle] : y - ys[middle];
+        if (offset < 0) {
+            nearest(from, middle, !byX, x, y, nearest);
+            if (offset * offset <= nearest.distanceSquared)
+                nearest(middle + 1, to, !byX, x, y, nearest);
+        } else {
+            nearest(middle + 1, to, !byX, x, y, nearest);
+            if (offset * offset <= nearest.distanceSquared)
+                nearest(from, middle, !byX, x, y, nearest);
+        }
+    }
+
+    /**
+     * @return the indices of the instances within the given rectangle, borders included, in no particular order
+     */
+    int[] within(double minX, double minY, double maxX, double maxY) {
+        Hits hits = new Hits();
+        inRectangle(0, instances.length, true, minX, minY, maxX, maxY, hits);
+        return hits.toArray();
+    }
+
+    private void inRectangle(int from, int to, boolean byX, double minX, double minY, double maxX, double maxY,
+                             Hits hits) {
+        if (to - from <= LEAF_SIZE) {
+            for (int position = from; position < to; position++) {
+                if (xs[position] >= minX && xs[position] <= maxX && ys[position] >= minY && ys[position] <= maxY)
+                    hits.add(instances[position]);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if (xs[middle] >= minX && xs[middle] <= maxX && ys[middle] >= minY && ys[middle] <= maxY)
+            hits.add(instances[middle]);
+        double key = byX ? xs[middle] : ys[middle];
+        if ((byX ? minX : minY) <= key)
+            inRectangle(from, middle, !byX, minX, minY, maxX, maxY, hits);
+        if ((byX ? maxX : maxY) >= key)
+            inRectangle(middle + 1, to, !byX, minX, minY, maxX, maxY, hits);
+    }
+
+    /**
+     * @return the indices of the instances at most the given distance from the given location, in no particular
+     * order
+     */
+    int[] within(double x, double y, double radius) {
+        Hits hits = new Hits();
+        inCircle(0, instances.length, true, x, y, radius, radius * radius, hits);
+        return hits.toArray();
+    }
+
+    private void inCircle(int from, int to, boolean byX, double x, double y, double radius, double radiusSquared,
+                          Hits hits) {
+        if (to - from <= LEAF_SIZE) {
+            for (int position = from; position < to; position++) {
+                if (distanceSquared(position, x, y) <= radiusSquared)
+                    hits.add(instances[position]);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if (distanceSquared(middle, x, y) <= radiusSquared)
+            hits.add(instances[middle]);
+        double offset = byX ? x - xs[middle] : y - ys[middle];
+        if (offset <= radius)
+            inCircle(from, middle, !byX, x, y, radius, radiusSquared, hits);
+        if (offset >= -radius)
+            inCircle(middle + 1, to, !byX, x, y, radius, radiusSquared, hits);
+    }
+
+    private double distanceSquared(int position, double x, double y) {
+        double dx = xs[position] - x;
+        double dy = ys[position] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /** The nearest instance found so far by a query. */
+    private final class Nearest {
+
+        private double distanceSquared;
+        private int    instance = -1;
+
+        Nearest(double maxDistanceSquared) {
+            distanceSquared = maxDistanceSquared;
+        }
+
+        void offer(int position, double x, double y) {
+            double distance = distanceSquared(position, x, y);
+            if (distance < distanceSquared || (distance == distanceSquared && instance < 0)) {
+                distanceSquared = distance;
+                instance = instances[position];
+            }
+        }
+    }
+
+    /** The instances found so far by a query. */
+    private static final class Hits {
+
+        private int[] indices = new int[16];
+        private int   count;
+
+        void add(int index) {
+            if (count == indices.length)
+                indices = Arrays.copyOf(indices, 2 * count);
+            indices[count++] = index;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(indices, count);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package dataprocessors;
 
 import actions.AppActions;
+import javafx.concurrent.Task;
 import settings.AppPropertyTypes;
 import ui.AppUI;
 import vilij.components.DataComponent;
@@ -14,6 +15,8 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * This is the concrete application-specific implementation of the data
@@ -36,37 +39,79 @@ public class AppData implements DataComponent {
 
     private ApplicationTemplate applicationTemplate;
 
+    // loads data files in the background, one at a time
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-loading");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Task<TSDProcessor> loading; // the load in progress, if any
+
     public AppData(ApplicationTemplate applicationTemplate) {
         this.processor = new TSDProcessor(applicationTemplate);
         this.applicationTemplate = applicationTemplate;
     }
 
+    /**
+     * Loads a data file in the background, into a processor of its own, which replaces the current one only once the
+     * whole file was loaded. The user interface shows the progress of the load, in bytes, and can cancel it; a load
+     * that was cancelled or failed leaves the data loaded before as it was. A new load cancels a running one.
+     */
     @Override
     public void loadData(Path dataFilePath) {
-        // TODO: NOT A PART OF HW 1
-        try {
-            StringBuilder text = new StringBuilder();
-            Files.lines(dataFilePath)
-                    .forEach(list -> {
-                        text.append(list).append("\n");
-                    });
-            processor.clear();
-            try {
-                processor.processString(text.toString());
-                updateGUI(text.toString(), dataFilePath);
-
-            } catch (Exception e) {
-                exceptionHelper(e);
+        if (loading != null)
+            loading.cancel();
+        boolean binary = isBinaryDataFile(dataFilePath);
+        Task<TSDProcessor> load = new Task<TSDProcessor>() {
+            @Override
+            protected TSDProcessor call() throws Exception {
+                Task<TSDProcessor> task = this;
+                long fileSize = Math.max(1, Files.size(dataFilePath));
+                TSDProcessor loaded = new TSDProcessor(applicationTemplate);
+                loaded.processDataFile(dataFilePath, binary, new LoadProgress() {
+                    @Override
+                    protected void bytesDone(long bytes) {
+                        updateProgress(Math.min(bytes, fileSize), fileSize);
+                    }
+
+                    @Override
+                    protected boolean isCancelled() {
+                        return task.isCancelled();
+                    }
+                });
+                return loaded;
             }
+        };
+        load.setOnSucceeded(e -> {
+            loadFinished(load);
+            processor = load.getValue();
+            ((AppUI) applicationTemplate.getUIComponent()).getChart().clear();
+            updateGUI(dataFilePath);
+            ((AppActions) applicationTemplate.getActionComponent()).setDataFilePath(dataFilePath);
+            ((AppActions) applicationTemplate.getActionComponent()).setIsUnsavedProperty(false);
+        });
+        load.setOnFailed(e -> {
+            loadFinished(load);
+            showLoadError(dataFilePath, load.getException());
+        });
+        load.setOnCancelled(e -> loadFinished(load));
+
+        loading = load;
+        ((AppUI) applicationTemplate.getUIComponent()).showLoadProgress(load);
+        LOADER.execute(load);
+    }
 
-        } catch (IOException e) {
-            System.err.println(e.getMessage());
+    private void loadFinished(Task<TSDProcessor> load) {
+        if (loading == load) {
+            loading = null;
+            ((AppUI) applicationTemplate.getUIComponent()).hideLoadProgress();
         }
     }
 
     public void loadData(String dataString) {
         try {
-            processor.processString(dataString);
+            processor.updateString(dataString);
             ((AppUI) applicationTemplate.getUIComponent()).setHasNewText(true);
             ((AppUI) applicationTemplate.getUIComponent()).setMetaDataInfo(processor.metaData());
             ((AppUI) applicationTemplate.getUIComponent()).setShowMetaData(true);
@@ -76,19 +121,50 @@ public class AppData implements DataComponent {
         }
     }
 
+    /**
+     * Saves the data in the format of the file's extension. Data typed into the text area is saved as it is there,
+     * whether or not it was parsed yet; the binary format is written from a parse of the text, so that a text that is
+     * not valid data is reported instead of being saved as whatever was parsed last. A loaded file's data is saved
+     * in full, not just the lines shown in the text area.
+     */
     @Override
     public void saveData(Path dataFilePath) {
         // NOTE: completing this method was not a part of HW 1. You may have implemented file saving from the
         // confirmation dialog elsewhere in a different way.
+        AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+        if (isBinaryDataFile(dataFilePath)) {
+            try {
+                if (ui.isShowToggleSwitchBox()) {
+                    TSDProcessor parsed = new TSDProcessor(applicationTemplate);
+                    parsed.processString(ui.getTextArea().getText());
+                    parsed.writeBinaryFile(dataFilePath);
+                } else {
+                    processor.writeBinaryFile(dataFilePath);
+                }
+            } catch (Exception e) {
+                showSaveError(dataFilePath, e);
+            }
+            return;
+        }
         try (PrintWriter writer = new PrintWriter(Files.newOutputStream(dataFilePath))) {
-            writer.write(((AppUI) applicationTemplate.getUIComponent()).getTextArea().getText());
+            writer.write(ui.getTextArea().getText());
         } catch (IOException e) {
-            System.err.println(e.getMessage());
+            showSaveError(dataFilePath, e);
         }
     }
 
+    /**
+     * @return whether the file has the binary data file extension, as opposed to the <code>.tsd</code> text format
+     */
+    public boolean isBinaryDataFile(Path dataFilePath) {
+        String extension = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.BINARY_DATA_FILE_EXT.name());
+        return dataFilePath.getFileName().toString().endsWith(extension);
+    }
+
     @Override
     public void clear() {
+        if (loading != null)
+            loading.cancel();
         processor.clear();
     }
 
@@ -103,9 +179,9 @@ public class AppData implements DataComponent {
     /**
      * This is a helper method to update the GUI
      *
-     * @param text
+     * @param dataFilePath
      */
-    private void updateGUI(String text, Path dataFilePath) {
+    private void updateGUI(Path dataFilePath) {
         if (!((AppUI) applicationTemplate.getUIComponent()).isToggleSwitchIsOn()) {
             ((AppUI) applicationTemplate.getUIComponent()).setToggleSwitchIsOn(true);
         }
@@ -114,17 +190,7 @@ public class AppData implements DataComponent {
         ((AppUI) applicationTemplate.getUIComponent()).setShowMetaData(true);
         ((AppUI) applicationTemplate.getUIComponent()).setShowTextArea(true);
 
-
-        StringBuilder displayText = new StringBuilder();
-        String[] token = text.split("\\n");
-        for (int i = 0; i < token.length; i++) {
-            if (i == 10) {
-                break;
-            }
-            displayText.append(token[i]).append("\n");
-        }
-
-        ((AppUI) applicationTemplate.getUIComponent()).getTextArea().setText(displayText.toString());
+        ((AppUI) applicationTemplate.getUIComponent()).getTextArea().setText(processor.getPreview());
         ((AppUI) applicationTemplate.getUIComponent()).getSaveButton().setDisable(true);
         ((AppUI) applicationTemplate.getUIComponent()).setShowToggleSwitchBox(false);
         ((AppUI) applicationTemplate.getUIComponent()).setToggleSwitchIsOn(false);
@@ -132,20 +198,42 @@ public class AppData implements DataComponent {
 
     }
 
-    private void exceptionHelper(Exception e) {
+    private void showLoadError(Throwable e) {
         ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
         PropertyManager manager = applicationTemplate.manager;
         String errTitle = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name());
         String errMsg = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_MSG.name());
         String errInput = manager.getPropertyValue(AppPropertyTypes.TEXT_AREA.name());
         dialog.show(errTitle, errMsg + errInput + e.getMessage());
+    }
+
+    private void showLoadError(Path dataFilePath, Throwable e) {
+        ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+        PropertyManager manager = applicationTemplate.manager;
+        String errTitle = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name());
+        String errMsg = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_MSG.name());
+        dialog.show(errTitle, errMsg + dataFilePath.getFileName() + ". " + e.getMessage());
+    }
+
+    private void showSaveError(Path dataFilePath, Exception e) {
+        ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+        PropertyManager manager = applicationTemplate.manager;
+        String errTitle = manager.getPropertyValue(PropertyTypes.SAVE_ERROR_TITLE.name());
+        String errMsg = manager.getPropertyValue(PropertyTypes.SAVE_ERROR_MSG.name());
+        dialog.show(errTitle, errMsg + dataFilePath.getFileName() + ". " + e.getMessage());
+    }
+
+    private void exceptionHelper(Exception e) {
+        showLoadError(e);
         ((AppUI) applicationTemplate.getUIComponent()).getSaveButton().setDisable(true);
         ((AppActions) applicationTemplate.getActionComponent()).setIsUnsavedProperty(false);
         processor.clear();
         if (!((AppUI) applicationTemplate.getUIComponent()).isShowToggleSwitchBox() || ((AppUI) applicationTemplate.getUIComponent()).isToggleSwitchIsOn())
             ((AppUI) applicationTemplate.getUIComponent()).clear();
-        else
+        else {
+            ((AppUI) applicationTemplate.getUIComponent()).getChart().clear();
             ((AppUI) applicationTemplate.getUIComponent()).setToggleSwitchIsOn(true);
+        }
 
 
     }
@@ -0,0 +1,48 @@
+package dataprocessors;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of loading a data file, in bytes. The loaders report the bytes they are done with as they go, from
+ * whichever threads read them, and stop at the next report once the load was cancelled. Subclasses pass the
+ * progress on, e.g., to a {@link javafx.concurrent.Task}, and tell whether the load was cancelled.
+ *
+ * @author Aditya Taday
+ * @see TSDProcessor#processDataFile(java.nio.file.Path, boolean, LoadProgress)
+ */
+public class LoadProgress {
+
+    /** Progress that is not reported anywhere, for a load that cannot be cancelled. */
+    public static final LoadProgress NONE = new LoadProgress();
+
+    /** The loaders report their progress about once per this many bytes. */
+    static final int STEP = 1 << 20;
+
+    private final AtomicLong bytesDone = new AtomicLong();
+
+    /**
+     * Adds to the bytes done.
+     *
+     * @throws CancellationException if the load was cancelled
+     */
+    final void advance(long bytes) {
+        if (this == NONE)
+            return;
+        bytesDone(bytesDone.addAndGet(bytes));
+        if (isCancelled())
+            throw new CancellationException();
+    }
+
+    /**
+     * Called with the total number of bytes done, each time it grows. Does nothing by default.
+     */
+    protected void bytesDone(long bytes) {}
+
+    /**
+     * @return whether the load should stop; <code>false</code> by default
+     */
+    protected boolean isCancelled() {
+        return false;
+    }
+}
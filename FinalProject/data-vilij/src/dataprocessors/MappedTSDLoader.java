@@ -0,0 +1,339 @@
+package dataprocessors;
+
+import data.DataSet;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a <code>.tsd</code> file through memory-mapped buffers, for files that are too large to hold on the heap as
+ * text. A single pass over the mapped bytes validates every line and builds only the numeric columns: the x and y
+ * coordinates, a label id per instance, and the byte offset of every line. Labels are decoded once per distinct
+ * label, and instance names are never decoded during the load; the resulting {@link DataSet} decodes a name from
+ * the mapped file when it is asked for.
+ *
+ * @author Aditya Taday
+ * @see TSDProcessor#processMappedFile(Path)
+ */
+final class MappedTSDLoader {
+
+    /** Upper bound for a single mapping; every mapped segment ends at a line boundary. */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final TSDProcessor processor;
+
+    private final List<MappedByteBuffer> segments      = new ArrayList<>();
+    private       long[]                 segmentStarts = new long[4];
+
+    private long[]   lineOffsets = new long[1024];
+    private double[] xs          = new double[1024];
+    private double[] ys          = new double[1024];
+    private int[]    labelIds    = new int[1024];
+    private int      size;
+
+    private final List<String>  labels     = new ArrayList<>();
+    private final List<byte[]>  labelBytes = new ArrayList<>();
+    private       int[]         nameTable  = new int[2048];
+    private final StringBuilder preview    = new StringBuilder();
+
+    private double minX = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    private double minY = Double.POSITIVE_INFINITY;
+    private double maxY = Double.NEGATIVE_INFINITY;
+
+    MappedTSDLoader(TSDProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Maps and validates the file, and hands the resulting dataset to the processor.
+     *
+     * @throws Exception with one line per error if the file does not follow the <code>.tsd</code> data format
+     */
+    void load(Path dataFilePath) throws Exception {
+        StringBuilder errorMessage = new StringBuilder();
+        try (FileChannel channel = FileChannel.open(dataFilePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            long lineNumber = 0;
+            long reported = 0;
+            int emptyLines = 0; // held back, since empty lines at the end are not errors
+            while (position < fileSize) {
+                long length = Math.min(SEGMENT_SIZE, fileSize - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < fileSize) {
+                    while (end > 0 && buffer.get(end - 1) != '\n')
+                        end--;
+                    if (end == 0)
+                        throw new IOException(String.format("Line at byte %d exceeds %d bytes.", position, SEGMENT_SIZE));
+                }
+                addSegment(buffer, position);
+
+                int lineStart = 0;
+                while (lineStart < end) {
+                    int lineEnd = lineStart;
+                    while (lineEnd < end && buffer.get(lineEnd) != '\n')
+                        lineEnd++;
+                    lineNumber++;
+                    if (lineEnd == lineStart || (lineEnd == lineStart + 1 && buffer.get(lineStart) == '\r')) {
+                        if (lineNumber <= TSDProcessor.PREVIEW_LINES)
+                            preview.append("\n");
+                        emptyLines++;
+                    } else {
+                        TSDLineParser.appendEmptyLineErrors(errorMessage, lineNumber - 1, emptyLines);
+                        emptyLines = 0;
+                        processLine(buffer, position, lineStart, lineEnd, lineNumber, errorMessage);
+                    }
+                    lineStart = lineEnd + 1;
+                    if (position + lineStart - reported >= LoadProgress.STEP) {
+                        processor.progress().advance(position + lineStart - reported);
+                        reported = position + lineStart;
+                    }
+                }
+                position += end;
+            }
+            processor.progress().advance(fileSize - reported);
+        }
+        if (errorMessage.length() > 0)
+            throw new Exception(errorMessage.toString());
+
+        nameTable = null; // only needed for the duplicate check; the dataset keeps this loader reachable
+        processor.adopt(new DataSet(size, xs, ys, labelIds, labels, this::decodeName), preview.toString(),
+                        minX, maxX, minY, maxY);
+    }
+
+    private void processLine(MappedByteBuffer buffer, long segmentStart, int start, int end, long lineNumber,
+                             StringBuilder errorMessage) {
+        int contentEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        if (lineNumber <= TSDProcessor.PREVIEW_LINES)
+            preview.append(decode(buffer, start, contentEnd)).append("\n");
+
+        int firstTab = indexOf(buffer, (byte) '\t', start, contentEnd);
+        int secondTab = firstTab < 0 ? -1 : indexOf(buffer, (byte) '\t', firstTab + 1, contentEnd);
+        int thirdTab = secondTab < 0 ? -1 : indexOf(buffer, (byte) '\t', secondTab + 1, contentEnd);
+        int dataEnd = thirdTab < 0 ? contentEnd : thirdTab;
+        int comma = secondTab < 0 ? -1 : indexOf(buffer, (byte) ',', secondTab + 1, dataEnd);
+        int yEnd = comma < 0 ? -1 : indexOf(buffer, (byte) ',', comma + 1, dataEnd);
+        yEnd = yEnd < 0 ? dataEnd : yEnd;
+
+        double x = Double.NaN;
+        double y = Double.NaN;
+        if (start < contentEnd && buffer.get(start) == '@' && comma > 0) {
+            x = parseDecimal(buffer, secondTab + 1, comma);
+            y = parseDecimal(buffer, comma + 1, yEnd);
+        }
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            // not a plain decimal line: let the text parser either accept it or produce the usual error
+            String line = decode(buffer, start, contentEnd);
+            TSDLineParser parser = new TSDLineParser();
+            try {
+                parser.parse(line);
+            } catch (Exception e) {
+                TSDLineParser.appendError(errorMessage, lineNumber, line, e);
+                return;
+            }
+            x = parser.getX();
+            y = parser.getY();
+        }
+
+        long offset = segmentStart + start;
+        if (!addName(buffer, start, firstTab, offset)) {
+            String line = decode(buffer, start, contentEnd);
+            TSDLineParser.appendError(errorMessage, lineNumber, line,
+                                      processor.duplicateInstance(decode(buffer, start, firstTab)));
+            return;
+        }
+
+        if (size == xs.length)
+            grow();
+        lineOffsets[size] = offset;
+        xs[size] = x;
+        ys[size] = y;
+        labelIds[size] = labelId(buffer, firstTab + 1, secondTab);
+        size++;
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+    }
+
+    /**
+     * Parses an optionally signed decimal number without exponent, such as <code>-12.375</code>, directly from the
+     * mapped bytes. The result is exact whenever the digits fit in 53 bits, since it is then a single correctly
+     * rounded division of two exactly representable values.
+     *
+     * @return the value, or <code>NaN</code> if the number has another form and must be parsed as text
+     */
+    private static double parseDecimal(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && buffer.get(start) == ' ')
+            start++;
+        while (end > start && buffer.get(end - 1) == ' ')
+            end--;
+        boolean negative = false;
+        if (start < end && (buffer.get(start) == '-' || buffer.get(start) == '+'))
+            negative = buffer.get(start++) == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                if (++digits > 15)
+                    return Double.NaN;
+                if (fractionDigits >= 0)
+                    fractionDigits++;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0)
+            return Double.NaN;
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private int labelId(MappedByteBuffer buffer, int start, int end) {
+        for (int id = 0; id < labelBytes.size(); id++) {
+            if (equals(buffer, start, end, labelBytes.get(id)))
+                return id;
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(start + i);
+        labelBytes.add(bytes);
+        labels.add(new String(bytes, StandardCharsets.UTF_8));
+        return labelBytes.size() - 1;
+    }
+
+    /**
+     * Records the name of the instance about to be added in an open-addressing table of instance indices, which
+     * is keyed by a hash of the name bytes, so that duplicates are found without decoding names.
+     *
+     * @return <code>false</code> if an instance of the same name was already added
+     */
+    private boolean addName(MappedByteBuffer buffer, int start, int end, long offset) {
+        if ((size + 1) * 2 > nameTable.length)
+            rehash();
+        int mask = nameTable.length - 1;
+        for (int slot = hash(buffer, start, end) & mask; ; slot = (slot + 1) & mask) {
+            int entry = nameTable[slot];
+            if (entry == 0) {
+                nameTable[slot] = size + 1;
+                return true;
+            }
+            if (sameName(buffer, start, end, lineOffsets[entry - 1]))
+                return false;
+        }
+    }
+
+    private void rehash() {
+        int[] table = new int[nameTable.length * 2];
+        int mask = table.length - 1;
+        for (int index = 0; index < size; index++) {
+            int segment = segmentIndex(lineOffsets[index]);
+            MappedByteBuffer buffer = segments.get(segment);
+            int start = (int) (lineOffsets[index] - segmentStarts[segment]);
+            int slot = hash(buffer, start, nameEnd(buffer, start)) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = index + 1;
+        }
+        nameTable = table;
+    }
+
+    private boolean sameName(MappedByteBuffer buffer, int start, int end, long otherOffset) {
+        int segment = segmentIndex(otherOffset);
+        MappedByteBuffer other = segments.get(segment);
+        int otherStart = (int) (otherOffset - segmentStarts[segment]);
+        if (nameEnd(other, otherStart) - otherStart != end - start)
+            return false;
+        for (int i = 0; i < end - start; i++) {
+            if (buffer.get(start + i) != other.get(otherStart + i))
+                return false;
+        }
+        return true;
+    }
+
+    /** Decodes the name of the instance at the given index; used by the dataset once the load is complete. */
+    private String decodeName(int index) {
+        long offset = lineOffsets[index];
+        int segment = segmentIndex(offset);
+        MappedByteBuffer buffer = segments.get(segment);
+        int start = (int) (offset - segmentStarts[segment]);
+        return decode(buffer, start, nameEnd(buffer, start));
+    }
+
+    private void addSegment(MappedByteBuffer buffer, long start) {
+        if (segments.size() == segmentStarts.length)
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentStarts.length * 2);
+        segmentStarts[segments.size()] = start;
+        segments.add(buffer);
+    }
+
+    private int segmentIndex(long offset) {
+        int index = Arrays.binarySearch(segmentStarts, 0, segments.size(), offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        lineOffsets = Arrays.copyOf(lineOffsets, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        labelIds = Arrays.copyOf(labelIds, capacity);
+    }
+
+    private static int nameEnd(MappedByteBuffer buffer, int start) {
+        int end = start;
+        while (end < buffer.limit() && buffer.get(end) != '\t' && buffer.get(end) != '\n')
+            end++;
+        return end;
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == target)
+                return i;
+        }
+        return -1;
+    }
+
+    private static int hash(MappedByteBuffer buffer, int start, int end) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++)
+            hash = (hash ^ buffer.get(i)) * 0x01000193;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(MappedByteBuffer buffer, int start, int end, byte[] bytes) {
+        if (end - start != bytes.length)
+            return false;
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(start + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static String decode(MappedByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
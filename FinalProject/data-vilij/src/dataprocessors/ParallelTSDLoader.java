@@ -0,0 +1,326 @@
+package dataprocessors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads a large <code>.tsd</code> file on all available cores. The file is cut into line-aligned byte ranges, each
+ * range is parsed on a {@link ForkJoinPool} worker into its own buffers, and the buffers are then merged into the
+ * {@link TSDProcessor} in file order. Duplicate names can only be detected across ranges, so that check happens
+ * during the (sequential) merge, which also assigns the global line numbers used in the error messages.
+ *
+ * @author Aditya Taday
+ * @see TSDProcessor#processFile(Path)
+ */
+final class ParallelTSDLoader {
+
+    /** Files smaller than this are not worth splitting, and are streamed on the calling thread instead. */
+    static final long PARALLEL_THRESHOLD = 8L << 20;
+
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final int  BLOCK_SIZE      = 1 << 16;
+    private static final int  CHUNKS_PER_CORE = 4;
+
+    private final TSDProcessor processor;
+    private final ForkJoinPool pool;
+
+    ParallelTSDLoader(TSDProcessor processor, ForkJoinPool pool) {
+        this.processor = processor;
+        this.pool = pool;
+    }
+
+    /**
+     * Parses the file and adds its instances to the processor.
+     *
+     * @return the preview, i.e., the first {@link TSDProcessor#PREVIEW_LINES} lines of the file
+     * @throws Exception with one line per error if the file does not follow the <code>.tsd</code> data format
+     */
+    String load(Path dataFilePath) throws Exception {
+        try (FileChannel channel = FileChannel.open(dataFilePath, StandardOpenOption.READ)) {
+            long[] boundaries = split(channel);
+            List<ChunkTask> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++)
+                tasks.add(new ChunkTask(channel, boundaries[i], boundaries[i + 1], processor.progress()));
+
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                    return null;
+                }
+            });
+
+            return merge(channel, tasks);
+        }
+    }
+
+    /**
+     * Computes the chunk boundaries; every boundary except the first is the position right after a newline.
+     */
+    private long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_CORE, size / MIN_CHUNK_BYTES));
+        long[] boundaries = new long[chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(BLOCK_SIZE);
+        int count = 1;
+        for (int i = 1; i < chunks; i++) {
+            long position = Math.max(size / chunks * i, boundaries[count - 1]);
+            long lineStart = nextLineStart(channel, position, size, probe);
+            if (lineStart > boundaries[count - 1] && lineStart < size)
+                boundaries[count++] = lineStart;
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe)
+            throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private String merge(FileChannel channel, List<ChunkTask> tasks) throws Exception {
+        StringBuilder preview = new StringBuilder();
+        StringBuilder errorMessage = new StringBuilder();
+        long lineOffset = 0;
+        int emptyLines = 0; // at the end of the chunks so far, which are errors only if a line with content follows
+        for (ChunkTask task : tasks) {
+            ChunkResult chunk = task.join();
+            if (chunk.failure != null)
+                throw chunk.failure;
+            if (chunk.hasContent) {
+                TSDLineParser.appendEmptyLineErrors(errorMessage, lineOffset, emptyLines);
+                emptyLines = 0;
+            }
+            for (int i = 0; i < chunk.previewLines.size() && lineOffset + i < TSDProcessor.PREVIEW_LINES; i++)
+                preview.append(chunk.previewLines.get(i)).append("\n");
+
+            int error = 0;
+            for (int record = 0; record < chunk.size; record++) {
+                while (error < chunk.errors.size() && chunk.errors.get(error).line < chunk.lines[record])
+                    chunk.errors.get(error++).appendTo(errorMessage, lineOffset);
+                try {
+                    processor.addInstance(chunk.names[record], chunk.labels[record], chunk.xs[record], chunk.ys[record]);
+                } catch (Exception e) {
+                    TSDLineParser.appendError(errorMessage, lineOffset + chunk.lines[record],
+                                              readLine(channel, chunk.offsets[record]), e);
+                }
+            }
+            while (error < chunk.errors.size())
+                chunk.errors.get(error++).appendTo(errorMessage, lineOffset);
+            emptyLines += chunk.emptyLines;
+            lineOffset += chunk.lineCount;
+        }
+        if (errorMessage.length() > 0)
+            throw new Exception(errorMessage.toString());
+        return preview.toString();
+    }
+
+    /** Re-reads a single line for an error message, so that the chunks need not keep the raw text around. */
+    private static String readLine(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        LineBuffer line = new LineBuffer();
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                return line.decode();
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    line.append(buffer.array(), 0, i);
+                    return line.decode();
+                }
+            }
+            line.append(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    /**
+     * Parses one byte range of the file.
+     */
+    private static final class ChunkTask extends RecursiveTask<ChunkResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel  channel;
+        private final long         start;
+        private final long         end;
+        private final LoadProgress progress;
+
+        ChunkTask(FileChannel channel, long start, long end, LoadProgress progress) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.progress = progress;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            ChunkResult result = new ChunkResult();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+                byte[] bytes = buffer.array();
+                LineBuffer carry = new LineBuffer();
+                long position = start;
+                long lineStart = start;
+                while (position < end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(BLOCK_SIZE, end - position));
+                    int read = channel.read(buffer, position);
+                    if (read <= 0)
+                        break;
+                    int from = 0;
+                    for (int i = 0; i < read; i++) {
+                        if (bytes[i] != '\n')
+                            continue;
+                        String line;
+                        if (carry.length > 0) {
+                            carry.append(bytes, from, i - from);
+                            line = carry.decode();
+                            carry.length = 0;
+                        } else {
+                            line = LineBuffer.decode(bytes, from, i - from);
+                        }
+                        result.accept(line, lineStart);
+                        lineStart = position + i + 1;
+                        from = i + 1;
+                    }
+                    carry.append(bytes, from, read - from);
+                    position += read;
+                    progress.advance(read);
+                }
+                if (carry.length > 0)
+                    result.accept(carry.decode(), lineStart);
+            } catch (IOException e) {
+                result.failure = e;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The thread-local buffers of one chunk. Line numbers are local to the chunk and start at 1.
+     */
+    private static final class ChunkResult {
+
+        private final TSDLineParser    parser       = new TSDLineParser();
+        private final List<String>     previewLines = new ArrayList<>();
+        private final List<ChunkError> errors       = new ArrayList<>();
+
+        private String[] names   = new String[256];
+        private String[] labels  = new String[256];
+        private double[] xs      = new double[256];
+        private double[] ys      = new double[256];
+        private int[]    lines   = new int[256];
+        private long[]   offsets = new long[256];
+        private int      size;
+        private int      lineCount;
+        private int      emptyLines; // at the end of the chunk so far
+        private boolean  hasContent;
+        private Exception failure;
+
+        void accept(String line, long offset) {
+            lineCount++;
+            if (previewLines.size() < TSDProcessor.PREVIEW_LINES)
+                previewLines.add(line);
+            if (line.isEmpty() || line.equals("\r")) {
+                emptyLines++;
+                return;
+            }
+            for (; emptyLines > 0; emptyLines--)
+                errors.add(new ChunkError(lineCount - emptyLines, "", new TSDProcessor.InvalidDataNameException("")));
+            hasContent = true;
+            try {
+                parser.parse(line);
+            } catch (Exception e) {
+                errors.add(new ChunkError(lineCount, line, e));
+                return;
+            }
+            if (size == names.length)
+                grow();
+            names[size] = parser.getName();
+            labels[size] = parser.getLabel();
+            xs[size] = parser.getX();
+            ys[size] = parser.getY();
+            lines[size] = lineCount;
+            offsets[size] = offset;
+            size++;
+        }
+
+        private void grow() {
+            int capacity = names.length * 2;
+            names = Arrays.copyOf(names, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+    }
+
+    private static final class ChunkError {
+
+        private final int       line;
+        private final String    text;
+        private final Exception cause;
+
+        ChunkError(int line, String text, Exception cause) {
+            this.line = line;
+            this.text = text;
+            this.cause = cause;
+        }
+
+        void appendTo(StringBuilder errorMessage, long lineOffset) {
+            TSDLineParser.appendError(errorMessage, lineOffset + line, text, cause);
+        }
+    }
+
+    /**
+     * Growable byte buffer for a line that spans two reads.
+     */
+    private static final class LineBuffer {
+
+        private byte[] bytes = new byte[256];
+        private int    length;
+
+        void append(byte[] source, int offset, int count) {
+            if (length + count > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+
+        String decode() {
+            return decode(bytes, 0, length);
+        }
+
+        /** Decodes a line, dropping the carriage return of a Windows line ending. */
+        static String decode(byte[] source, int offset, int count) {
+            if (count > 0 && source[offset + count - 1] == '\r')
+                count--;
+            return new String(source, offset, count, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package dataprocessors;
+
+import data.DataSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the binary companion of the <code>.tsd</code> format. A binary file holds the same instances as a
+ * text file, but already parsed, so that loading it is a matter of bulk-copying columns:
+ * <pre>
+ *   header       magic, version, instance count, label count, min x, max x, min y, max y
+ *   labels       label count UTF-8 strings, each prefixed by its byte length
+ *   label ids    one int per instance
+ *   x, y         one double per instance, as two packed columns
+ *   names        instance count + 1 int offsets into the name bytes, followed by the UTF-8 name bytes
+ * </pre>
+ * All values are little-endian. Instance names are not decoded when a file is read; the dataset decodes them from
+ * the mapped name bytes when they are asked for. A file is therefore never overwritten in place: it is written next
+ * to its destination and then moved there, so a dataset read from the destination keeps its names.
+ *
+ * @author Aditya Taday
+ * @see TSDProcessor#processBinaryFile(Path)
+ * @see TSDProcessor#writeBinaryFile(Path)
+ */
+final class TSDBinaryFormat {
+
+    private static final int MAGIC       = 0x42445354; // "TSDB"
+    private static final int VERSION     = 1;
+    private static final int HEADER_SIZE = 4 * 4 + 4 * 8;
+    private static final int BLOCK_SIZE  = 1 << 20;
+
+    private static final String NOT_A_BINARY_FILE = "Not a binary data file: ";
+    private static final String FILE_TOO_LARGE    = "Instance names exceed the supported size";
+    private static final String WRITE_FAILED      = "Could not write ";
+    private static final String CORRUPT_FILE      = "Corrupt binary data file: ";
+
+    private TSDBinaryFormat() {}
+
+    static void write(DataSet data, Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            writeTo(data, temporary);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IOException(WRITE_FAILED + path + ": " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeTo(DataSet data, Path file) throws IOException {
+        int size = data.size();
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, data.getXs()[i]);
+            maxX = Math.max(maxX, data.getXs()[i]);
+            minY = Math.min(minY, data.getYs()[i]);
+            maxY = Math.max(maxY, data.getYs()[i]);
+        }
+        List<byte[]> labels = new ArrayList<>();
+        for (int id = 0; id < data.labelCount(); id++)
+            labels.add(data.labelOf(id).getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(labels.size());
+            buffer.putDouble(minX).putDouble(maxX).putDouble(minY).putDouble(maxY);
+            for (byte[] label : labels) {
+                ensure(channel, buffer, 4);
+                buffer.putInt(label.length);
+                put(channel, buffer, label);
+            }
+
+            int[] labelIds = data.getLabelIds();
+            for (int i = 0; i < size; i++) {
+                ensure(channel, buffer, 4);
+                buffer.putInt(labelIds[i]);
+            }
+            for (double[] column : new double[][]{data.getXs(), data.getYs()}) {
+                for (int i = 0; i < size; i++) {
+                    ensure(channel, buffer, 8);
+                    buffer.putDouble(column[i]);
+                }
+            }
+
+            // names are encoded twice, once for the offsets and once for the bytes, rather than held in memory
+            long offset = 0;
+            ensure(channel, buffer, 4);
+            buffer.putInt(0);
+            for (int i = 0; i < size; i++) {
+                offset += data.getName(i).getBytes(StandardCharsets.UTF_8).length;
+                if (offset > Integer.MAX_VALUE)
+                    throw new IOException(FILE_TOO_LARGE);
+                ensure(channel, buffer, 4);
+                buffer.putInt((int) offset);
+            }
+            for (int i = 0; i < size; i++)
+                put(channel, buffer, data.getName(i).getBytes(StandardCharsets.UTF_8));
+            flush(channel, buffer);
+        }
+    }
+
+    static void read(TSDProcessor processor, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0, path);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException(NOT_A_BINARY_FILE + path);
+            int size = header.getInt();
+            int labelCount = header.getInt();
+            double minX = header.getDouble();
+            double maxX = header.getDouble();
+            double minY = header.getDouble();
+            double maxY = header.getDouble();
+            long position = HEADER_SIZE;
+            // every label takes at least its length, and every instance a label id, x, y and name offset
+            if (size < 0 || labelCount < 0 || channel.size() - position < 4L * labelCount + 24L * size + 4)
+                throw new IOException(CORRUPT_FILE + path);
+
+            List<String> labels = new ArrayList<>();
+            ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            for (int id = 0; id < labelCount; id++) {
+                length.clear();
+                readFully(channel, length, position, path);
+                if (length.getInt(0) < 0 || length.getInt(0) > channel.size() - position - 4)
+                    throw new IOException(CORRUPT_FILE + path);
+                ByteBuffer label = ByteBuffer.allocate(length.getInt(0));
+                readFully(channel, label, position + 4, path);
+                labels.add(new String(label.array(), StandardCharsets.UTF_8));
+                position += 4 + label.capacity();
+            }
+
+            int[] labelIds = new int[size];
+            double[] xs = new double[size];
+            double[] ys = new double[size];
+            int[] nameOffsets = new int[size + 1];
+            processor.progress().advance(position);
+            position = readColumn(channel, path, position, labelIds.length * 4L, buffer -> buffer.asIntBuffer().get(labelIds));
+            processor.progress().advance(labelIds.length * 4L);
+            position = readColumn(channel, path, position, xs.length * 8L, buffer -> buffer.asDoubleBuffer().get(xs));
+            processor.progress().advance(xs.length * 8L);
+            position = readColumn(channel, path, position, ys.length * 8L, buffer -> buffer.asDoubleBuffer().get(ys));
+            processor.progress().advance(ys.length * 8L);
+            position = readColumn(channel, path, position, nameOffsets.length * 4L, buffer -> buffer.asIntBuffer().get(nameOffsets));
+            processor.progress().advance(nameOffsets.length * 4L);
+            for (int i = 0; i < size; i++) {
+                if (labelIds[i] < 0 || labelIds[i] >= labelCount)
+                    throw new IOException(CORRUPT_FILE + path);
+            }
+            if (nameOffsets[0] != 0)
+                throw new IOException(CORRUPT_FILE + path);
+            for (int i = 0; i < size; i++) {
+                if (nameOffsets[i + 1] < nameOffsets[i])
+                    throw new IOException(CORRUPT_FILE + path);
+            }
+            if (channel.size() - position < nameOffsets[size])
+                throw new IOException(CORRUPT_FILE + path);
+            MappedByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, position, nameOffsets[size]);
+            processor.progress().advance(nameOffsets[size]);
+
+            DataSet data = new DataSet(size, xs, ys, labelIds, labels, index -> {
+                byte[] name = new byte[nameOffsets[index + 1] - nameOffsets[index]];
+                for (int i = 0; i < name.length; i++)
+                    name[i] = names.get(nameOffsets[index] + i);
+                return new String(name, StandardCharsets.UTF_8);
+            });
+            processor.adopt(data, preview(data), minX, maxX, minY, maxY);
+        }
+    }
+
+    /** Renders the first instances in the text format, for display in the text area. */
+    private static String preview(DataSet data) {
+        StringBuilder preview = new StringBuilder();
+        for (int i = 0; i < Math.min(data.size(), TSDProcessor.PREVIEW_LINES); i++) {
+            preview.append(data.getName(i)).append("\t").append(data.getLabel(i)).append("\t")
+                   .append(data.getX(i)).append(",").append(data.getY(i)).append("\n");
+        }
+        return preview.toString();
+    }
+
+    private interface ColumnReader {
+        void read(ByteBuffer buffer);
+    }
+
+    /**
+     * Maps a column and hands it to the reader as a little-endian buffer.
+     *
+     * @return the position right after the column
+     */
+    private static long readColumn(FileChannel channel, Path path, long position, long length, ColumnReader reader)
+            throws IOException {
+        if (length > Integer.MAX_VALUE || channel.size() - position < length)
+            throw new IOException(CORRUPT_FILE + path);
+        reader.read(channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN));
+        return position + length;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path path)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new IOException(NOT_A_BINARY_FILE + path);
+            position += read;
+        }
+    }
+
+    /** Puts bytes into the buffer, flushing it as often as it fills up, so that they may exceed its capacity. */
+    private static void put(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        int written = 0;
+        while (written < bytes.length) {
+            ensure(channel, buffer, 1);
+            int count = Math.min(buffer.remaining(), bytes.length - written);
+            buffer.put(bytes, written, count);
+            written += count;
+        }
+    }
+
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush(channel, buffer);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
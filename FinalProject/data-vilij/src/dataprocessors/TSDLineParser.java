@@ -0,0 +1,88 @@
+package dataprocessors;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass parser for one line of a <code>.tsd</code> file. The line is scanned once for its tab and comma
+ * separators, and the instance name, label and coordinates are extracted without splitting the line into
+ * intermediate arrays. The parsed values are kept in this (reusable) parser object until the next call to
+ * {@link #parse(String)}.
+ *
+ * @author Aditya Taday
+ * @see TSDProcessor
+ */
+final class TSDLineParser {
+
+    static final String ERROR_LINE_ID       = "Error in line : ";
+    static final String CORRECT_DATA_FORMAT = "Correct Input must be [@Instance \\t label \\t data]";
+
+    private String name;
+    private String label;
+    private double x;
+    private double y;
+
+    String getName()  { return name; }
+
+    String getLabel() { return label; }
+
+    double getX()     { return x; }
+
+    double getY()     { return y; }
+
+    /**
+     * Parses a single line of the form <code>@name \t label \t x,y</code>.
+     *
+     * @param line the line, without its terminating newline
+     * @throws TSDProcessor.InvalidDataNameException if the name does not start with <code>@</code>
+     * @throws ArrayIndexOutOfBoundsException        if the line does not have all three fields
+     * @throws NumberFormatException                 if a coordinate is not a number
+     */
+    void parse(String line) throws TSDProcessor.InvalidDataNameException {
+        int firstTab = line.indexOf('\t');
+        String first = firstTab < 0 ? line : line.substring(0, firstTab);
+        if (!first.startsWith("@"))
+            throw new TSDProcessor.InvalidDataNameException(first);
+
+        int secondTab = firstTab < 0 ? -1 : line.indexOf('\t', firstTab + 1);
+        if (secondTab < 0)
+            throw new ArrayIndexOutOfBoundsException(1);
+        int thirdTab = line.indexOf('\t', secondTab + 1);
+        int dataEnd = thirdTab < 0 ? line.length() : thirdTab;
+
+        int comma = line.indexOf(',', secondTab + 1);
+        if (comma < 0 || comma >= dataEnd)
+            throw new ArrayIndexOutOfBoundsException(2);
+        int secondComma = line.indexOf(',', comma + 1);
+        int yEnd = secondComma < 0 || secondComma > dataEnd ? dataEnd : secondComma;
+        if (yEnd == comma + 1)
+            throw new ArrayIndexOutOfBoundsException(2);
+
+        x = Double.parseDouble(line.substring(secondTab + 1, comma));
+        y = Double.parseDouble(line.substring(comma + 1, yEnd));
+        label = line.substring(firstTab + 1, secondTab);
+        name = first;
+    }
+
+    /**
+     * Appends the error reports of empty lines that turned out not to be at the end of the input. Empty lines at the
+     * end of the input are ignored, as they always were, so a reader holds empty lines back until a line with content
+     * follows them.
+     *
+     * @param lastLineNumber the number of the last of the empty lines
+     * @param count          the number of empty lines
+     */
+    static void appendEmptyLineErrors(StringBuilder errorMessage, long lastLineNumber, int count) {
+        for (long lineNumber = lastLineNumber - count + 1; lineNumber <= lastLineNumber; lineNumber++)
+            appendError(errorMessage, lineNumber, "", new TSDProcessor.InvalidDataNameException(""));
+    }
+
+    /**
+     * Appends the error report for a line that could not be processed, in the same format that has always been
+     * shown to the user: the line number, the tab-separated tokens of the line and the reason it was rejected.
+     */
+    static void appendError(StringBuilder errorMessage, long lineNumber, String line, Exception e) {
+        errorMessage.append("\n").append(ERROR_LINE_ID).append(lineNumber).append(" ")
+                    .append(Arrays.asList(line.split("\t")).toString()).append(" ")
+                    .append(e instanceof ArrayIndexOutOfBoundsException ? CORRECT_DATA_FORMAT : e.getMessage());
+    }
+}
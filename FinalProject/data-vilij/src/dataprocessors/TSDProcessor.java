@@ -1,14 +1,20 @@
 package dataprocessors;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
+import algorithms.LabelChanges;
+import data.DataSet;
 import javafx.geometry.Point2D;
-import javafx.scene.chart.XYChart;
+import metrics.Metrics;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 
 import static settings.AppPropertyTypes.LABEL_ALREADY_EXISTS;
 import static settings.AppPropertyTypes.TO_MANY_LINES;
@@ -16,6 +22,7 @@ import static settings.AppPropertyTypes.TO_MANY_LINES_MSG_1;
 import static settings.AppPropertyTypes.TO_MANY_LINES_MSG_2;
 
 import ui.AppUI;
+import ui.ScatterPlot;
 import vilij.components.Dialog;
 import vilij.components.ErrorDialog;
 import vilij.propertymanager.PropertyManager;
@@ -32,7 +39,7 @@ import vilij.templates.ApplicationTemplate;
  * <code>resources/data</code> folder.
  *
  * @author Ritwik Banerjee
- * @see XYChart
+ * @see ScatterPlot
  */
 public final class TSDProcessor {
 
@@ -45,29 +52,79 @@ public final class TSDProcessor {
         }
     }
 
-    private static final String ERROR_LINE_ID = "Error in line : ";
-    private static final String CORRECT_DATA_FORMAT = "Correct Input must be [@Instance \\t label \\t data]";
+    /**
+     * Number of leading lines of a processed file that are kept for display in the text area.
+     */
+    public static final int PREVIEW_LINES = 10;
+
+    /**
+     * Files larger than this fraction of the maximum heap size are loaded through memory-mapping, see
+     * {@link #processMappedFile(Path)}.
+     */
+    private static final int MAPPED_LOAD_HEAP_FRACTION = 4;
+
+    /** The duplicate instance message when there is no application, and thus no property manager. */
+    private static final String DUPLICATE_INSTANCE_MSG = " label already exists";
+
+    private DataSet data;
+    private LoadProgress progress = LoadProgress.NONE; // of the file being loaded
 
-    private Map<String, String> dataLabels;
+    /**
+     * @return the processed instances, stored column-wise
+     */
+    public DataSet getDataSet() {
+        return data;
+    }
 
+    /**
+     * @return a name-to-label view of the processed instances
+     */
     public Map<String, String> getDataLabels() {
-        return dataLabels;
+        return data.getLabels();
     }
 
+    /**
+     * Relabels the processed instances. Every name in the given map must be an instance of the processed data.
+     *
+     * @param dataLabels the new name-to-label assignments
+     */
     public void setDataLabels(Map<String, String> dataLabels) {
-        this.dataLabels = dataLabels;
+        dataLabels.forEach(data::updateLabel);
+        linesCurrent = false;
     }
 
-    public Map<String, Point2D> getDataPoints() {
-        return dataPoints;
+    /**
+     * Relabels the processed instances that an algorithm changed, and moves their points to their new labels in the
+     * plot, without touching the other instances. The changes must be about the processed data, or a copy of it.
+     *
+     * @param changes the changes, by instance index, with the label ids of the algorithm's dataset
+     * @param plot    the plot that shows the processed data
+     */
+    public void setDataLabels(LabelChanges changes, ScatterPlot plot) {
+        int[] labelIds = new int[changes.labelCount()];
+        Arrays.fill(labelIds, -1);
+        for (int change = 0; change < changes.size(); change++) {
+            int labelId = changes.getLabelId(change);
+            if (labelIds[labelId] < 0)
+                labelIds[labelId] = data.labelIdOf(changes.labelOf(labelId));
+            plot.relabel(changes.getIndex(change), labelIds[labelId]);
+        }
+        linesCurrent = false;
     }
 
-    public void setDataPoints(Map<String, Point2D> dataPoints) {
-        this.dataPoints = dataPoints;
+    /**
+     * @return a name-to-location view of the processed instances
+     */
+    public Map<String, Point2D> getDataPoints() {
+        return data.getLocations();
     }
 
-    private Map<String, Point2D> dataPoints;
     private ApplicationTemplate applicationTemplate;
+    private final StringBuilder preview = new StringBuilder();
+
+    private String[] lines     = new String[0]; // the string last processed by updateString, by line
+    private String[] lineNames = new String[0]; // the instance defined on each of those lines, or null
+    private boolean  linesCurrent;              // whether the data still mirrors those lines
 
     private AtomicInteger min_x;
     private AtomicInteger max_x;
@@ -75,8 +132,7 @@ public final class TSDProcessor {
     private AtomicInteger max_y;
 
     public TSDProcessor(ApplicationTemplate applicationTemplate) {
-        dataLabels = new HashMap<>();
-        dataPoints = new HashMap<>();
+        data = new DataSet();
         this.applicationTemplate = applicationTemplate;
         min_x = new AtomicInteger(Integer.MAX_VALUE);
         max_x = new AtomicInteger(Integer.MIN_VALUE);
@@ -108,79 +164,277 @@ public final class TSDProcessor {
      *                   <code>.tsd</code> data format
      */
     public void processString(String tsdString) throws Exception {
-        AtomicBoolean hadAnError = new AtomicBoolean(false);
+        processLines(new BufferedReader(new StringReader(tsdString)));
+    }
+
+    /**
+     * Brings the data in line with an edited version of the string last passed to this method, re-parsing only the
+     * lines that changed. The old and new lines are compared from either end; the instances on the old lines in
+     * between are removed and the new lines in between are parsed and added, so that editing one line costs time in
+     * proportion to the edit rather than to the data. If the data no longer mirrors the last string, e.g., because an
+     * algorithm relabeled it or a file was loaded since, the whole string is processed from scratch.
+     *
+     * @param tsdString the edited input data
+     * @throws Exception if a changed line does not follow the <code>.tsd</code> data format, in which case the data
+     *                   holds only part of the edit and the processor must be cleared
+     */
+    public void updateString(String tsdString) throws Exception {
+        long start = System.nanoTime();
+        String[] newLines = new BufferedReader(new StringReader(tsdString)).lines().toArray(String[]::new);
+        int length = newLines.length;
+        while (length > 0 && newLines[length - 1].isEmpty())
+            length--; // empty lines at the end are not instances
+        newLines = Arrays.copyOf(newLines, length);
+        if (!linesCurrent)
+            clear();
+        linesCurrent = false;
+
+        int common = Math.min(lines.length, newLines.length);
+        int prefix = 0;
+        while (prefix < common && lines[prefix].equals(newLines[prefix]))
+            prefix++;
+        int suffix = 0;
+        while (suffix < common - prefix && lines[lines.length - 1 - suffix].equals(newLines[newLines.length - 1 - suffix]))
+            suffix++;
+
+        boolean removed = false;
+        for (int i = prefix; i < lines.length - suffix; i++) {
+            if (lineNames[i] != null) {
+                data.removeInstance(lineNames[i]);
+                removed = true;
+            }
+        }
+        String[] newLineNames = new String[newLines.length];
+        System.arraycopy(lineNames, 0, newLineNames, 0, prefix);
+        System.arraycopy(lineNames, lines.length - suffix, newLineNames, newLines.length - suffix, suffix);
+
+        TSDLineParser parser = new TSDLineParser();
+        StringBuilder errorMessage = new StringBuilder();
+        for (int i = prefix; i < newLines.length - suffix; i++) {
+            try {
+                parser.parse(newLines[i]);
+                addInstance(parser.getName(), parser.getLabel(), parser.getX(), parser.getY());
+                newLineNames[i] = parser.getName();
+            } catch (Exception e) {
+                TSDLineParser.appendError(errorMessage, i + 1, newLines[i], e);
+            }
+        }
+        if (errorMessage.length() > 0) {
+            throw new Exception(errorMessage.toString());
+        }
+
+        preview.setLength(0);
+        for (int i = 0; i < Math.min(newLines.length, PREVIEW_LINES); i++)
+            preview.append(newLines[i]).append("\n");
+        if (removed)
+            recomputeBounds();
+        lines = newLines;
+        lineNames = newLineNames;
+        linesCurrent = true;
+        Metrics.recordParse(start, newLines.length - suffix - prefix);
+    }
+
+    /**
+     * Processes a <code>.tsd</code> file by streaming it line by line, so that the file content is never held in
+     * memory as a whole. Only the first {@link #PREVIEW_LINES} lines are retained, see {@link #getPreview()}. Large
+     * files on multi-core machines are parsed in parallel chunks by a {@link ParallelTSDLoader}.
+     *
+     * @param dataFilePath the <code>.tsd</code> file
+     * @throws IOException if the file cannot be read
+     * @throws Exception   if the file does not follow the <code>.tsd</code> data format
+     */
+    public void processFile(Path dataFilePath) throws Exception {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (pool.getParallelism() > 1 && Files.size(dataFilePath) >= ParallelTSDLoader.PARALLEL_THRESHOLD) {
+            linesCurrent = false;
+            long start = System.nanoTime();
+            preview.setLength(0);
+            preview.append(new ParallelTSDLoader(this, pool).load(dataFilePath));
+            Metrics.recordParse(start, data.size());
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(dataFilePath, StandardCharsets.UTF_8)) {
+            processLines(reader);
+        }
+    }
+
+    /**
+     * Loads a data file in whichever way suits it: a binary data file is read as such, a <code>.tsd</code> file too
+     * large to hold comfortably in the heap is memory-mapped, and any other file is parsed as it is streamed in.
+     *
+     * @param dataFilePath the data file
+     * @param binary       whether the file is in the binary format of {@link #writeBinaryFile(Path)}
+     * @throws IOException if the file cannot be read
+     * @throws Exception   if the file does not follow the <code>.tsd</code> data format
+     */
+    public void processDataFile(Path dataFilePath, boolean binary) throws Exception {
+        processDataFile(dataFilePath, binary, LoadProgress.NONE);
+    }
+
+    /**
+     * Loads a data file as {@link #processDataFile(Path, boolean)} does, reporting the bytes read to the given
+     * progress, which may also cancel the load.
+     *
+     * @throws java.util.concurrent.CancellationException if the load was cancelled
+     */
+    public void processDataFile(Path dataFilePath, boolean binary, LoadProgress progress) throws Exception {
+        this.progress = progress;
+        try {
+            if (binary)
+                processBinaryFile(dataFilePath);
+            else if (Files.size(dataFilePath) > Runtime.getRuntime().maxMemory() / MAPPED_LOAD_HEAP_FRACTION)
+                processMappedFile(dataFilePath);
+            else
+                processFile(dataFilePath);
+        } finally {
+            this.progress = LoadProgress.NONE;
+        }
+    }
+
+    /**
+     * @return the progress of the file being loaded, to which the loaders report
+     */
+    LoadProgress progress() {
+        return progress;
+    }
+
+    /**
+     * Processes a <code>.tsd</code> file that may be larger than the heap. The file is memory-mapped and only its
+     * coordinates, label ids and line offsets are kept in memory; instance names are decoded from the mapped file
+     * when they are asked for. See {@link MappedTSDLoader}.
+     *
+     * @param dataFilePath the <code>.tsd</code> file
+     * @throws IOException if the file cannot be mapped
+     * @throws Exception   if the file does not follow the <code>.tsd</code> data format
+     */
+    public void processMappedFile(Path dataFilePath) throws Exception {
+        long start = System.nanoTime();
+        new MappedTSDLoader(this).load(dataFilePath);
+        Metrics.recordParse(start, data.size());
+    }
+
+    /**
+     * Loads data that was saved in the binary format by {@link #writeBinaryFile(Path)}. No text is parsed, and
+     * instance names are decoded only when they are asked for. See {@link TSDBinaryFormat}.
+     *
+     * @param dataFilePath the binary data file
+     * @throws IOException if the file cannot be read or is not a binary data file
+     */
+    public void processBinaryFile(Path dataFilePath) throws IOException {
+        TSDBinaryFormat.read(this, dataFilePath);
+    }
+
+    /**
+     * Saves the processed data in the binary format, together with its bounds, see {@link TSDBinaryFormat}.
+     *
+     * @param dataFilePath the binary data file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinaryFile(Path dataFilePath) throws IOException {
+        TSDBinaryFormat.write(data, dataFilePath);
+    }
+
+    /**
+     * @return the first {@link #PREVIEW_LINES} lines of the most recently processed data, newline-terminated
+     */
+    public String getPreview() {
+        return preview.toString();
+    }
+
+    private void processLines(BufferedReader reader) throws Exception {
+        long start = System.nanoTime();
+        linesCurrent = false;
+        TSDLineParser parser = new TSDLineParser();
         StringBuilder errorMessage = new StringBuilder();
-        AtomicInteger count = new AtomicInteger();
-        Stream.of(tsdString.split("\n"))
-                .map(line -> Arrays.asList(line.split("\t")))
-                .forEach(list -> {
-                    try {
-                        count.incrementAndGet();
-                        String name = checkedname(list.get(0));
-                        String label = list.get(1);
-                        String[] pair = list.get(2).split(",");
-                        Point2D point = new Point2D(Double.parseDouble(pair[0]), Double.parseDouble(pair[1]));
-                        getPointsDetails(pair);
-                        checkInstanceDuplicates(name);
-                        dataLabels.put(name, label);
-                        dataPoints.put(name, point);
-                    } catch (Exception e) {
-                        //errorMessage.setLength(0);
-                        if (e instanceof ArrayIndexOutOfBoundsException) {
-                            errorMessage.append("\n").append(ERROR_LINE_ID).append(count).append(" ").append(list.toString()).append(" ").append(CORRECT_DATA_FORMAT);
-                        } else {
-                            errorMessage.append("\n").append(ERROR_LINE_ID).append(count).append(" ").append(list.toString()).append(" ").append(e.getMessage());
-                        }
-                        hadAnError.set(true);
-                    }
-                });
+        preview.setLength(0);
+        int count = 0;
+        int emptyLines = 0; // held back, since empty lines at the end are not errors
+        long bytes = 0; // not yet reported, counting a character as a byte
+        String line;
+        while ((line = reader.readLine()) != null) {
+            count++;
+            bytes += line.length() + 1;
+            if (bytes >= LoadProgress.STEP) {
+                progress.advance(bytes);
+                bytes = 0;
+            }
+            if (count <= PREVIEW_LINES)
+                preview.append(line).append("\n");
+            if (line.isEmpty()) {
+                emptyLines++;
+                continue;
+            }
+            TSDLineParser.appendEmptyLineErrors(errorMessage, count - 1, emptyLines);
+            emptyLines = 0;
+            try {
+                parser.parse(line);
+                addInstance(parser.getName(), parser.getLabel(), parser.getX(), parser.getY());
+            } catch (Exception e) {
+                TSDLineParser.appendError(errorMessage, count, line, e);
+            }
+        }
+        progress.advance(bytes);
         if (errorMessage.length() > 0) {
             throw new Exception(errorMessage.toString());
         }
+        Metrics.recordParse(start, count);
     }
 
     /**
-     * Exports the data to the specified 2-D chart.
+     * Replaces the processed data with a dataset that was built and validated elsewhere.
+     */
+    void adopt(DataSet dataSet, String dataPreview, double minX, double maxX, double minY, double maxY) {
+        clear();
+        data = dataSet;
+        preview.append(dataPreview);
+        if (dataSet.size() > 0) {
+            updateBounds(minX, minY);
+            updateBounds(maxX, maxY);
+        }
+    }
+
+    /**
+     * Adds a parsed instance, rejecting duplicate names, and widens the bounds to include it.
+     */
+    void addInstance(String name, String label, double x, double y) throws Exception {
+        checkInstanceDuplicates(name);
+        updateBounds(x, y);
+        data.addInstance(name, label, x, y);
+    }
+
+    /**
+     * Shows the data on the specified plot. The plot draws straight from the data, so any later change to the data
+     * only needs a {@link ScatterPlot#redraw()}.
      *
-     * @param chart the specified chart
+     * @param plot the specified plot
      */
-    void toChartData(XYChart<Number, Number> chart) {
-        Set<String> labels = new HashSet<>(dataLabels.values());
-        labels.stream().map((label) -> {
-            XYChart.Series<Number, Number> series = new XYChart.Series<>();
-            series.setName(label);
-            dataLabels.entrySet().stream().filter(entry -> entry.getValue().equals(label)).forEach(entry -> {
-                Point2D point = dataPoints.get(entry.getKey());
-                series.getData().add(new XYChart.Data<>(point.getX(), point.getY()));
-            });
-            return series;
-        }).forEachOrdered((series) -> {
-            chart.getData().add(series);
-        });
+    void toChartData(ScatterPlot plot) {
+        plot.setData(data);
     }
 
     void clear() {
-        dataPoints.clear();
-        dataLabels.clear();
+        data.clear();
+        preview.setLength(0);
         min_x = new AtomicInteger(Integer.MAX_VALUE);
         max_x = new AtomicInteger(Integer.MIN_VALUE);
         min_y = new AtomicInteger(Integer.MAX_VALUE);
         max_y = new AtomicInteger(Integer.MIN_VALUE);
+        lines = new String[0];
+        lineNames = new String[0];
+        linesCurrent = false;
     }
 
-    private String checkedname(String name) throws InvalidDataNameException {
-        if (!name.startsWith("@")) {
-            throw new InvalidDataNameException(name);
+    private void checkInstanceDuplicates(String name) throws Exception {
+        if (data.indexOf(name) >= 0) {
+            throw duplicateInstance(name);
         }
 
-        return name;
     }
 
-    private void checkInstanceDuplicates(String name) throws Exception {
-        if (dataLabels.containsKey(name)) {
-            throw new Exception(name + applicationTemplate.manager.getPropertyValue(LABEL_ALREADY_EXISTS.name()));
-        }
-
+    Exception duplicateInstance(String name) {
+        if (applicationTemplate == null)
+            return new Exception(name + DUPLICATE_INSTANCE_MSG);
+        return new Exception(name + applicationTemplate.manager.getPropertyValue(LABEL_ALREADY_EXISTS.name()));
     }
 
     //    private void displayFilter() {
@@ -205,18 +459,11 @@ public final class TSDProcessor {
 
     public String metaData(Path dataFilePath) {
         StringBuilder metadata = new StringBuilder();
-        Set<String> valueSet = new HashSet<>();
-        dataLabels.keySet().forEach((s) -> {
-            valueSet.add(dataLabels.get(s));
-        });
-
-        if (valueSet.size() == 2) {
-            ((AppUI) (applicationTemplate.getUIComponent())).setShowClassificationAlgorithm(true);
-        } else {
-            ((AppUI) (applicationTemplate.getUIComponent())).setShowClassificationAlgorithm(false);
-        }
+        Set<String> valueSet = data.distinctLabels();
+
+        showClassificationAlgorithm(valueSet.size() == 2);
 
-        metadata.append(dataLabels.keySet().size()).append(" instances with \n").append(valueSet.size()).append(" labels loaded from :\n").append(dataFilePath.toString());
+        metadata.append(data.size()).append(" instances with \n").append(valueSet.size()).append(" labels loaded from :\n").append(dataFilePath.toString());
         metadata.append("\nThe labels are: \n").append(valueSet.toString());
 
         return metadata.toString();
@@ -224,36 +471,49 @@ public final class TSDProcessor {
 
     public String metaData() {
         StringBuilder metadata = new StringBuilder();
-        Set<String> valueSet = new HashSet<>();
-        dataLabels.keySet().forEach((s) -> {
-            valueSet.add(dataLabels.get(s));
-        });
-
-        if (valueSet.size() == 2) {
-            ((AppUI) (applicationTemplate.getUIComponent())).setShowClassificationAlgorithm(true);
-        } else {
-            ((AppUI) (applicationTemplate.getUIComponent())).setShowClassificationAlgorithm(false);
-        }
+        Set<String> valueSet = data.distinctLabels();
 
-        metadata.append(dataLabels.keySet().size()).append(" instances with \n").append(valueSet.size()).append(" labels loaded\n");
+        showClassificationAlgorithm(valueSet.size() == 2);
+
+        metadata.append(data.size()).append(" instances with \n").append(valueSet.size()).append(" labels loaded\n");
         metadata.append("The labels are: \n").append(valueSet.toString());
 
         return metadata.toString();
     }
 
-    private void getPointsDetails(String[] pair) {
-        if ((int) Double.parseDouble(pair[0]) < min_x.get()) {
-            min_x.set((int) Double.parseDouble(pair[0]));
+    /**
+     * Tells the user interface, if there is one, whether classification applies to the data.
+     */
+    private void showClassificationAlgorithm(boolean show) {
+        if (applicationTemplate != null && applicationTemplate.getUIComponent() instanceof AppUI)
+            ((AppUI) applicationTemplate.getUIComponent()).setShowClassificationAlgorithm(show);
+    }
+
+    /** Shrinks the bounds back to the remaining instances after some were removed. */
+    private void recomputeBounds() {
+        min_x.set(Integer.MAX_VALUE);
+        max_x.set(Integer.MIN_VALUE);
+        min_y.set(Integer.MAX_VALUE);
+        max_y.set(Integer.MIN_VALUE);
+        double[] xs = data.getXs();
+        double[] ys = data.getYs();
+        for (int i = 0; i < data.size(); i++)
+            updateBounds(xs[i], ys[i]);
+    }
+
+    private void updateBounds(double x, double y) {
+        if ((int) x < min_x.get()) {
+            min_x.set((int) x);
         }
-        if ((int) Double.parseDouble(pair[0]) > max_x.get()) {
-            max_x.set((int) Double.parseDouble(pair[0]));
+        if ((int) x > max_x.get()) {
+            max_x.set((int) x);
         }
 
-        if ((int) Double.parseDouble(pair[1]) < min_y.get()) {
-            min_y.set((int) Double.parseDouble(pair[1]));
+        if ((int) y < min_y.get()) {
+            min_y.set((int) y);
         }
-        if ((int) Double.parseDouble(pair[1]) > max_y.get()) {
-            max_y.set((int) Double.parseDouble(pair[1]));
+        if ((int) y > max_y.get()) {
+            max_y.set((int) y);
         }
 
     }
@@ -295,12 +555,4 @@ public final class TSDProcessor {
 //            chart.getData().get(i).getNode().setVisible(false);
 //
 //        }
-//
-//        for (int i = 0; i < chart.getData().size(); i++) {
-//            for (int j = 0; j < chart.getData().get(i).getData().size(); j++) {
-//                Tooltip.install(chart.getData().get(i).getData().get(j).getNode(), new Tooltip(chart.getData().get(i).getData().get(j).getXValue().toString()+", " +chart.getData().get(i).getData().get(j).getYValue().toString()));
-//               
-//            }
-//
-//        }
 }
@@ -0,0 +1,178 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * The application-wide performance metrics: how long algorithm iterations take, how the handoff between an
+ * algorithm and the display is used, how large the published updates are, how long the display takes to render
+ * them, how fast data is parsed, and how many distance computations the bounds of
+ * {@link clustering.HamerlyKMeansClusterer} saved. Recording only touches lock-free counters and {@link Histogram}s,
+ * so it is cheap enough for the hot loops. Times are recorded in nanoseconds.
+ * <p>
+ * The metrics are read through JMX, see {@link #register()}, and can also be logged periodically by setting the
+ * system property <code>vilij.metrics.log</code> to the logging period in seconds.
+ *
+ * @author Aditya Taday
+ */
+public final class Metrics implements MetricsMXBean {
+
+    public static final Histogram ITERATION_NANOS    = new Histogram();
+    public static final Histogram HANDOFF_DEPTH      = new Histogram();
+    public static final LongAdder COALESCED_HANDOFFS = new LongAdder();
+    public static final Histogram SNAPSHOT_SIZE      = new Histogram();
+    public static final Histogram RENDER_NANOS       = new Histogram();
+    public static final LongAdder PARSED_LINES       = new LongAdder();
+    public static final LongAdder PARSE_NANOS        = new LongAdder();
+    public static final LongAdder SKIPPED_DISTANCES  = new LongAdder();
+
+    private static final String  OBJECT_NAME         = "vilij:type=Metrics";
+    private static final String  LOG_PERIOD_PROPERTY = "vilij.metrics.log";
+    private static final Logger  LOGGER              = Logger.getLogger(Metrics.class.getName());
+    private static final Metrics INSTANCE            = new Metrics();
+
+    private static boolean registered;
+
+    private Metrics() {}
+
+    /**
+     * Registers the metrics with the platform MBean server, and starts logging them if
+     * <code>vilij.metrics.log</code> is set. Calling this more than once has no further effect.
+     */
+    public static synchronized void register() {
+        if (registered)
+            return;
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOGGER.warning(e.getMessage());
+        }
+        long period = Long.getLong(LOG_PERIOD_PROPERTY, 0);
+        if (period > 0) {
+            ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.scheduleAtFixedRate(() -> LOGGER.info(summary()), period, period, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return the current metrics as a single line of <code>key=value</code> pairs
+     */
+    public static String summary() {
+        return String.format("iterations=%d iteration_us_mean=%.1f iteration_us_p99=%d handoffs=%d coalesced=%d "
+                             + "snapshot_size_mean=%.1f renders=%d render_us_mean=%.1f render_us_p99=%d "
+                             + "parsed_lines=%d parsed_lines_per_s=%.0f skipped_distances=%d",
+                             INSTANCE.getIterationCount(), INSTANCE.getIterationTimeMean(),
+                             INSTANCE.getIterationTimeP99(), INSTANCE.getHandoffCount(),
+                             INSTANCE.getCoalescedHandoffCount(), INSTANCE.getSnapshotSizeMean(),
+                             INSTANCE.getRenderCount(), INSTANCE.getRenderLatencyMean(),
+                             INSTANCE.getRenderLatencyP99(), INSTANCE.getParsedLineCount(),
+                             INSTANCE.getParsedLinesPerSecond(), INSTANCE.getSkippedDistanceCount());
+    }
+
+    /**
+     * Records a parse of the given number of lines that started at the given {@link System#nanoTime()}.
+     */
+    public static void recordParse(long startNanos, long lines) {
+        PARSED_LINES.add(lines);
+        PARSE_NANOS.add(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getIterationCount() {
+        return ITERATION_NANOS.getCount();
+    }
+
+    @Override
+    public double getIterationTimeMean() {
+        return ITERATION_NANOS.getMean() / 1000;
+    }
+
+    @Override
+    public long getIterationTimeP99() {
+        return ITERATION_NANOS.getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getIterationTimeMax() {
+        return ITERATION_NANOS.getMax() / 1000;
+    }
+
+    @Override
+    public long getHandoffCount() {
+        return HANDOFF_DEPTH.getCount();
+    }
+
+    @Override
+    public long getCoalescedHandoffCount() {
+        return COALESCED_HANDOFFS.sum();
+    }
+
+    @Override
+    public double getHandoffDepthMean() {
+        return HANDOFF_DEPTH.getMean();
+    }
+
+    @Override
+    public double getSnapshotSizeMean() {
+        return SNAPSHOT_SIZE.getMean();
+    }
+
+    @Override
+    public long getSnapshotSizeMax() {
+        return SNAPSHOT_SIZE.getMax();
+    }
+
+    @Override
+    public long getRenderCount() {
+        return RENDER_NANOS.getCount();
+    }
+
+    @Override
+    public double getRenderLatencyMean() {
+        return RENDER_NANOS.getMean() / 1000;
+    }
+
+    @Override
+    public long getRenderLatencyP99() {
+        return RENDER_NANOS.getPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getParsedLineCount() {
+        return PARSED_LINES.sum();
+    }
+
+    @Override
+    public double getParsedLinesPerSecond() {
+        long nanos = PARSE_NANOS.sum();
+        return nanos == 0 ? 0 : PARSED_LINES.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getSkippedDistanceCount() {
+        return SKIPPED_DISTANCES.sum();
+    }
+
+    @Override
+    public void reset() {
+        ITERATION_NANOS.reset();
+        HANDOFF_DEPTH.reset();
+        COALESCED_HANDOFFS.reset();
+        SNAPSHOT_SIZE.reset();
+        RENDER_NANOS.reset();
+        PARSED_LINES.reset();
+        PARSE_NANOS.reset();
+        SKIPPED_DISTANCES.reset();
+    }
+}
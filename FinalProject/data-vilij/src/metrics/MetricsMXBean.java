@@ -0,0 +1,45 @@
+package metrics;
+
+/**
+ * The management interface of {@link Metrics}, registered as <code>vilij:type=Metrics</code>. Times are in
+ * microseconds.
+ *
+ * @author Aditya Taday
+ */
+public interface MetricsMXBean {
+
+    long getIterationCount();
+
+    double getIterationTimeMean();
+
+    long getIterationTimeP99();
+
+    long getIterationTimeMax();
+
+    long getHandoffCount();
+
+    long getCoalescedHandoffCount();
+
+    double getHandoffDepthMean();
+
+    double getSnapshotSizeMean();
+
+    long getSnapshotSizeMax();
+
+    long getRenderCount();
+
+    double getRenderLatencyMean();
+
+    long getRenderLatencyP99();
+
+    long getParsedLineCount();
+
+    double getParsedLinesPerSecond();
+
+    long getSkippedDistanceCount();
+
+    /**
+     * Clears all counters and histograms.
+     */
+    void reset();
+}
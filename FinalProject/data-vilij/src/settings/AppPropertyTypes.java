@@ -44,15 +44,19 @@ public enum AppPropertyTypes {
     TO_MANY_LINES_MSG_2,
     SAVE_IMAGE,
     ALGORITHM_DONE_TITLE,
+    ALGORITHM_FAILED_TITLE,
 
     /* application-specific messages */
     SAVE_UNSAVED_WORK,
     ALGORITHM_DONE_MESSAGE,
+    ALGORITHM_FAILED_MESSAGE,
 
     /* application-specific parameters */
     DATA_FILE_EXT,
+    BINARY_DATA_FILE_EXT,
     IMAGE_FILE_EXT,
     DATA_FILE_EXT_DESC,
+    BINARY_DATA_FILE_EXT_DESC,
     IMAGE_FILE_EXT_DESC,
     TEXT_AREA,
     SPECIFIED_FILE,
@@ -61,5 +65,6 @@ public enum AppPropertyTypes {
     LEFT_PANE_TITLESIZE,
     CHART_TITLE,
     DISPLAY_BUTTON_TEXT,
+    CANCEL_LOAD_TEXT,
     CHECKBOX_LABEL
 }
@@ -1,10 +1,14 @@
 package ui;
 
 import actions.AppActions;
+import algorithms.AlgorithmRunner;
 import algorithms.Classifier;
 import algorithms.Clusterer;
+import algorithms.CoalescingChannel;
+import algorithms.RunConfiguration;
 import data.DataSet;
 import dataprocessors.AppData;
+import dataprocessors.TSDProcessor;
 import javafx.animation.FillTransition;
 import javafx.animation.ParallelTransition;
 import javafx.animation.TranslateTransition;
@@ -14,13 +18,11 @@ import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.concurrent.Task;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
@@ -46,6 +48,9 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import static java.io.File.separator;
 import static vilij.settings.PropertyTypes.*;
@@ -57,6 +62,9 @@ import static vilij.settings.PropertyTypes.*;
  */
 public final class AppUI extends UITemplate {
 
+    // how small the y coefficient of a classifier's line may be, relative to its x coefficient, before it is vertical
+    private static final double VERTICAL_LINE_TOLERANCE = 1e-9;
+
     /**
      * The application to which this class of actions belongs.
      */
@@ -65,7 +73,7 @@ public final class AppUI extends UITemplate {
     @SuppressWarnings("FieldCanBeLocal")
     private Button scrnshotButton; // toolbar button to take a screenshot of the data
 
-    private LineChart<Number, Number> chart;          // the chart where data will be displayed
+    private ScatterPlot chart;          // the chart where data will be displayed
     private Button run;  // workspace button to display data on the chart
     private TextArea textArea;       // text area for new data input
     private boolean hasNewText;     // whether or not the text area has any new data since last display
@@ -77,7 +85,17 @@ public final class AppUI extends UITemplate {
     private int updateInterval;
     private boolean isContinous;
     private int noOfClusters;
+    private int noOfWorkers;
+    private Long seed;
+    private int targetFps;
+    private int checkpointInterval;
     private Text metaDataInfo;
+    private ProgressBar loadProgress;  // the progress of a data file being loaded
+    private Button cancelLoad;
+
+    // runs the algorithm producers, one pool thread per run; their consumers are animation timers on the FX thread
+    private final AlgorithmRunner algorithmRunner = new AlgorithmRunner(4);
+    private FramePacedConsumer<?> consumer;
 
 
     private BooleanProperty showToggleSwitchBox;
@@ -90,6 +108,7 @@ public final class AppUI extends UITemplate {
     private BooleanProperty showRunButton;
     private BooleanProperty istFirstRun;
     private BooleanProperty isAlgorithmRunning;
+    private BooleanProperty isLoading;
 
     private IntegerProperty iterationNumber;
 
@@ -107,6 +126,7 @@ public final class AppUI extends UITemplate {
         showRunButton = new SimpleBooleanProperty();
         istFirstRun = new SimpleBooleanProperty(true);
         isAlgorithmRunning = new SimpleBooleanProperty();
+        isLoading = new SimpleBooleanProperty();
         iterationNumber = new SimpleIntegerProperty(0);
 
     }
@@ -136,7 +156,7 @@ public final class AppUI extends UITemplate {
         this.hasNewText = hasNewText;
     }
 
-    public LineChart<Number, Number> getChart() {
+    public ScatterPlot getChart() {
         return chart;
     }
 
@@ -219,8 +239,7 @@ public final class AppUI extends UITemplate {
     @Override
     public void clear() {
         textArea.clear();
-        chart.getData().clear();
-        chart.setId(null);
+        chart.clear();
         scrnshotButton.setDisable(true);
         newButton.setDisable(false);
         loadButton.setDisable(false);
@@ -240,6 +259,10 @@ public final class AppUI extends UITemplate {
         updateInterval = 0;
         isContinous = false;
         noOfClusters = 0;
+        noOfWorkers = 0;
+        seed = null;
+        targetFps = 0;
+        checkpointInterval = 0;
         iterationNumber.set(0);
 
         radioButton.getToggleGroup().selectToggle(null);
@@ -251,9 +274,7 @@ public final class AppUI extends UITemplate {
     private void layout() {
         PropertyManager manager = applicationTemplate.manager;
 
-        NumberAxis xAxis = new NumberAxis();
-        NumberAxis yAxis = new NumberAxis();
-        chart = new LineChart<>(xAxis, yAxis);
+        chart = new ScatterPlot();
         chart.setTitle(manager.getPropertyValue(AppPropertyTypes.CHART_TITLE.name()));
 
         VBox leftPanel = new VBox(8);
@@ -270,6 +291,17 @@ public final class AppUI extends UITemplate {
         leftPanelTitle.setFont(Font.font(fontname, fontsize));
         leftPanelTitle.visibleProperty().bind(showTextArea);
 
+        //Progress of a data file being loaded, shown only while loading
+        HBox loadBox = new HBox(8);
+        loadBox.setAlignment(Pos.CENTER_LEFT);
+        loadProgress = new ProgressBar();
+        loadProgress.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(loadProgress, Priority.ALWAYS);
+        cancelLoad = new Button(manager.getPropertyValue(AppPropertyTypes.CANCEL_LOAD_TEXT.name()));
+        loadBox.getChildren().addAll(loadProgress, cancelLoad);
+        loadBox.visibleProperty().bind(isLoading);
+        loadBox.managedProperty().bind(isLoading);
+
         textArea = new TextArea();
         textArea.visibleProperty().bind(showTextArea);
         textArea.editableProperty().bind(toggleSwitchIsOn);
@@ -342,7 +374,7 @@ public final class AppUI extends UITemplate {
 
 
         //Add the textArea, leftPanelTitle and processbuttonsBox to leftPanel.
-        leftPanel.getChildren().addAll(leftPanelTitle, textArea, processButtonsBox, metaDataBox, algorithmBox, subAlgorithmModule, runBox);
+        leftPanel.getChildren().addAll(loadBox, leftPanelTitle, textArea, processButtonsBox, metaDataBox, algorithmBox, subAlgorithmModule, runBox);
 
 
         StackPane rightPanel = new StackPane();
@@ -389,10 +421,8 @@ public final class AppUI extends UITemplate {
                     dialog.show(errTitle, errMsg + errInput);
                 }
 
-            } else {
-                synchronized (this) {
-                    notify();
-                }
+            } else if (consumer != null) {
+                consumer.step();
             }
 
         });
@@ -406,21 +436,20 @@ public final class AppUI extends UITemplate {
 
         try {
             DataSet dataset = DataSet.fromTSDProcessor(dataComponent.getProcessor());
+            RunConfiguration configuration = new RunConfiguration(maxIterations, updateInterval, isContinous,
+                                                                  noOfClusters, noOfWorkers, seed,
+                                                                  checkpointInterval, null);
             if (isClusteringAlgorithm.get()) {
-                Clusterer clusterer = (Clusterer) Class.forName(clustering.getText().toLowerCase() + "." + className).getConstructor(DataSet.class, int.class, int.class, int.class).newInstance(dataset, maxIterations, updateInterval, noOfClusters);
-                clusterer.getQueue().clear();
+                Clusterer clusterer = (Clusterer) configuration.newAlgorithm(clustering.getText().toLowerCase() + "." + className, dataset);
                 initializeChart(dataComponent);
-                Thread producer = new Thread(clusterer);
-                producer.start();
-                clusteringAlgorithmConsumer(clusterer, producer.getId());
+                AlgorithmRunner.RunHandle producer = algorithmRunner.submit(clusterer);
+                clusteringAlgorithmConsumer(clusterer, producer);
             } else {
-                Classifier classifier = (Classifier) Class.forName(classification.getText().toLowerCase() + "." + className).getConstructor(DataSet.class, int.class, int.class, boolean.class).newInstance(dataset, maxIterations, updateInterval, isContinous);
-                classifier.getQueue().clear();
+                Classifier classifier = (Classifier) configuration.newAlgorithm(classification.getText().toLowerCase() + "." + className, dataset);
                 initializeChart(dataComponent);
-                Thread producer = new Thread(classifier);
-                producer.start();
+                AlgorithmRunner.RunHandle producer = algorithmRunner.submit(classifier);
 
-                classificationConsumer(classifier, producer.getId());
+                classificationConsumer(classifier, producer);
             }
 
             istFirstRun.set(false);
@@ -430,193 +459,128 @@ public final class AppUI extends UITemplate {
 
     }
 
-    private void clusteringAlgorithmConsumer(Clusterer clusterer, long id) {
+    private void clusteringAlgorithmConsumer(Clusterer clusterer, AlgorithmRunner.RunHandle producer) {
         AppData dataComponent = ((AppData) applicationTemplate.getDataComponent());
 
-        Runnable task = () -> {
-
-            try {
-                isAlgorithmRunning.set(true);
-                while (!Thread.interrupted()) {
-
-
-                    if ((clusterer.producerIsIsDone().get() && clusterer.getQueue().isEmpty()) || ((AppActions) (applicationTemplate.getActionComponent())).isClearSignal().get()) {
-                        Thread.currentThread().interrupt();
-                        if (!clusterer.producerIsIsDone().get()) {
-                            Thread.getAllStackTraces().keySet().stream()
-                                    .filter(thread -> thread.getId() == id)
-                                    .findFirst().get().interrupt();
-                        }
-                    }
-
-
-                    dataComponent.getProcessor().setDataLabels(clusterer.getQueue().take());
-                    iterationNumber.set(iterationNumber.get() + 1);
-
-                    Platform.runLater(() -> {
-                        chart.getData().clear();
-                        chart.setId("clustering");
-                        dataComponent.displayData();
-
-                    });
-
-
-//                        Do Something
-                    System.out.println("Consumer Thread: Removal From Queue. Current Queue Size is: " + " " + clusterer.getQueue().size());
-
-                    if (!isContinous) {
-                        scrnshotButton.setDisable(false);
-                        showRunButton.set(true);
-                        synchronized (this) {
-                            wait();
-                        }
-                    } else {
-                        scrnshotButton.setDisable(true);
-                        showRunButton.set(false);
-                        Thread.sleep(1000);
-                    }
-
-
-                }
-
-
-            } catch (InterruptedException ex) {
-                System.out.println("Consumer Thread: Interrupted");
-
-                if (((AppActions) (applicationTemplate.getActionComponent())).isClearSignal().get()) {
-                    ((AppActions) (applicationTemplate.getActionComponent())).isClearSignal().set(false);
-                    clusterer.producerIsIsDone().set(false);
-                } else {
-                    Platform.runLater(() -> {
-                        ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
-                        PropertyManager manager = applicationTemplate.manager;
-                        String errTitle = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_DONE_TITLE.name());
-                        String errMsg = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_DONE_MESSAGE.name());
-                        dialog.show(errTitle, errMsg);
-                    });
-
-                    loadButton.setDisable(true);
-                    scrnshotButton.setDisable(false);
-                    isAlgorithmRunning.set(false);
-                }
-
-            }
-        };
-        new Thread(task).start();
+        startConsumer(clusterer.getQueue(), () -> clusterer.producerIsIsDone().get(),
+                      changes -> dataComponent.getProcessor().setDataLabels(changes, chart),
+                      producer, () -> clusterer.producerIsIsDone().set(false));
     }
 
-    private void classificationConsumer(Classifier classifier, long id) {
+    private void classificationConsumer(Classifier classifier, AlgorithmRunner.RunHandle producer) {
         AppData dataComponent = ((AppData) applicationTemplate.getDataComponent());
 
-        Runnable task = () -> {
-
-            try {
-                isAlgorithmRunning.set(true);
-                while (!Thread.interrupted()) {
-
-
-                    if ((classifier.producerIsIsDone().get() && classifier.getQueue().isEmpty()) || ((AppActions) (applicationTemplate.getActionComponent())).isClearSignal().get()) {
-                        Thread.currentThread().interrupt();
-                        if (!classifier.producerIsIsDone().get()) {
-                            Thread.getAllStackTraces().keySet().stream()
-                                    .filter(thread -> thread.getId() == id)
-                                    .findFirst().get().interrupt();
-                        }
-                    }
-
-
-                    List<Integer> algorithmOutput = classifier.getQueue().take();
-                    iterationNumber.set(iterationNumber.get() + 1);
-
-
-                    classificationAlgorithmOutput(algorithmOutput, dataComponent);
-
-//                        Do Something
-                    System.out.println("Consumer Thread: Removal From Queue. Current Queue Size is: " + " " + classifier.getQueue().size());
-
-                    if (!isContinous) {
-                        scrnshotButton.setDisable(false);
-                        showRunButton.set(true);
-                        synchronized (this) {
-                            wait();
-                        }
-                    } else {
-                        scrnshotButton.setDisable(true);
-                        showRunButton.set(false);
-                        Thread.sleep(1000);
-                    }
-
-
-                }
+        startConsumer(classifier.getQueue(), () -> classifier.producerIsIsDone().get(),
+                      algorithmOutput -> classificationAlgorithmOutput(algorithmOutput, dataComponent),
+                      producer, () -> classifier.producerIsIsDone().set(false));
+    }
 
+    /**
+     * Starts showing the updates of a running algorithm, one per frame at most, until the algorithm is done, fails,
+     * or the application is cleared.
+     */
+    private <T> void startConsumer(CoalescingChannel<T> channel, BooleanSupplier producerIsDone, Consumer<T> display,
+                                   AlgorithmRunner.RunHandle producer, Runnable onCleared) {
+        AppActions actionComponent = (AppActions) applicationTemplate.getActionComponent();
+        isAlgorithmRunning.set(true);
+        scrnshotButton.setDisable(true);
+        showRunButton.set(false);
 
-            } catch (InterruptedException ex) {
-                System.out.println("Consumer Thread: Interrupted");
+        consumer = new FramePacedConsumer<T>(channel, producerIsDone, update -> {
+            iterationNumber.set(iterationNumber.get() + 1);
+            display.accept(update);
+            scrnshotButton.setDisable(isContinous);
+            showRunButton.set(!isContinous);
+        }, () -> {
+            ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+            PropertyManager manager = applicationTemplate.manager;
+            String errTitle = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_DONE_TITLE.name());
+            String errMsg = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_DONE_MESSAGE.name());
+            dialog.show(errTitle, errMsg);
 
-                if (((AppActions) (applicationTemplate.getActionComponent())).isClearSignal().get()) {
-                    ((AppActions) (applicationTemplate.getActionComponent())).isClearSignal().set(false);
-                    classifier.producerIsIsDone().set(false);
-                } else {
-                    Platform.runLater(() -> {
-                        ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
-                        PropertyManager manager = applicationTemplate.manager;
-                        String errTitle = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_DONE_TITLE.name());
-                        String errMsg = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_DONE_MESSAGE.name());
-                        dialog.show(errTitle, errMsg);
-                    });
-
-                    loadButton.setDisable(true);
-                    scrnshotButton.setDisable(false);
-                    isAlgorithmRunning.set(false);
+            loadButton.setDisable(true);
+            scrnshotButton.setDisable(false);
+            isAlgorithmRunning.set(false);
+        }, targetFps, !isContinous) {
+            @Override
+            public void handle(long now) {
+                if (actionComponent.isClearSignal().get()) {
+                    stop();
+                    producer.cancel();
+                    actionComponent.isClearSignal().set(false);
+                    onCleared.run();
+                    return;
                 }
-
+                super.handle(now);
             }
         };
-        new Thread(task).start();
-
+        consumer.start();
 
+        FramePacedConsumer<?> runConsumer = consumer;
+        producer.getCompletion().whenComplete((result, failure) -> {
+            if (failure != null && !(failure instanceof CancellationException))
+                Platform.runLater(() -> algorithmFailed(runConsumer, failure));
+        });
     }
 
-    private void classificationAlgorithmOutput(List<Integer> algorithmOutput, AppData dataComponent) {
-        double y1 = ((dataComponent.getProcessor().getMin_x() * algorithmOutput.get(0)) + algorithmOutput.get(2)) / algorithmOutput.get(1);
-        double y2 = ((dataComponent.getProcessor().getMax_x() * algorithmOutput.get(0)) + algorithmOutput.get(2)) / algorithmOutput.get(1);
-
-        XYChart.Series<Number, Number> regression = new XYChart.Series<>();
-        regression.getData().add(0, new XYChart.Data<>(dataComponent.getProcessor().getMin_x(), y1));
-        regression.getData().add(1, new XYChart.Data<>(dataComponent.getProcessor().getMax_x(), y2));
-        regression.setName("Regression");
-
-        Platform.runLater(() -> {
-            try {
-                if (chart.getData().get(chart.getData().size() - 1).getName().equals("Regression")) {
-                    chart.getData().remove(chart.getData().size() - 1);
-                }
+    /**
+     * Stops showing a run whose algorithm threw, and lets the user configure and start a new run.
+     */
+    private void algorithmFailed(FramePacedConsumer<?> runConsumer, Throwable failure) {
+        runConsumer.stop();
+        if (consumer != runConsumer)
+            return;
+        consumer = null;
+        isAlgorithmRunning.set(false);
+        istFirstRun.set(true);
+        showRunButton.set(true);
+        scrnshotButton.setDisable(false);
 
-                chart.setId("classification");
-                chart.getData().add(regression);
+        ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+        PropertyManager manager = applicationTemplate.manager;
+        String errTitle = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_FAILED_TITLE.name());
+        String errMsg = manager.getPropertyValue(AppPropertyTypes.ALGORITHM_FAILED_MESSAGE.name());
+        dialog.show(errTitle, errMsg + (failure.getMessage() != null ? failure.getMessage() : failure.toString()));
+    }
 
-            } catch (Exception e) {
-                System.out.println("oopss there was nothing here");
-                showRunButton.set(false);
-                scrnshotButton.setDisable(true);
+    /**
+     * Draws the line <code>b y = a x + c</code> of a classifier's output across the data. A line with <code>b</code>
+     * close to 0 is vertical, at <code>x = -c / a</code>, and is drawn across the y range instead.
+     */
+    private void classificationAlgorithmOutput(double[] algorithmOutput, AppData dataComponent) {
+        TSDProcessor processor = dataComponent.getProcessor();
+        double a = algorithmOutput[0];
+        double b = algorithmOutput[1];
+        double c = algorithmOutput[2];
+
+        if (chart.hasData()) {
+            if (Math.abs(b) > VERTICAL_LINE_TOLERANCE * Math.abs(a)) {
+                chart.setRegressionLine(processor.getMin_x(), (processor.getMin_x() * a + c) / b,
+                                        processor.getMax_x(), (processor.getMax_x() * a + c) / b);
+            } else if (a != 0) {
+                chart.setRegressionLine(-c / a, processor.getMin_y(), -c / a, processor.getMax_y());
+            } else {
+                chart.clearRegressionLine(); // 0 = c is no line at all
             }
-
-
-        });
+        } else {
+            showRunButton.set(false);
+            scrnshotButton.setDisable(true);
+        }
 
     }
 
     private void initializeChart(AppData dataComponent) {
-        chart.getXAxis().setAutoRanging(false);
-        chart.getYAxis().setAutoRanging(false);
-        ((NumberAxis) chart.getXAxis()).setLowerBound(dataComponent.getProcessor().getMin_x() - 1);
-        ((NumberAxis) chart.getXAxis()).setUpperBound(dataComponent.getProcessor().getMax_x() + 1);
-        ((NumberAxis) chart.getYAxis()).setLowerBound(dataComponent.getProcessor().getMin_y() - 1);
-        ((NumberAxis) chart.getYAxis()).setUpperBound(dataComponent.getProcessor().getMax_y() + 1);
-        chart.setAnimated(false);
+        chart.clear();
+        setChartBounds(dataComponent);
         dataComponent.displayData();
     }
 
+    private void setChartBounds(AppData dataComponent) {
+        TSDProcessor processor = dataComponent.getProcessor();
+        chart.setBounds(processor.getMin_x() - 1, processor.getMax_x() + 1,
+                        processor.getMin_y() - 1, processor.getMax_y() + 1);
+    }
+
     private void setClassificationActions() {
         classification.setOnMouseClicked(e -> {
             clustering.getStyleClass().removeAll("algo-selected");
@@ -660,6 +624,24 @@ public final class AppUI extends UITemplate {
         });
     }
 
+    /**
+     * Shows the progress of a data file being loaded in the background, with a button to cancel the load. Loading
+     * another file is disabled until {@link #hideLoadProgress()}.
+     */
+    public void showLoadProgress(Task<?> load) {
+        loadProgress.progressProperty().bind(load.progressProperty());
+        cancelLoad.setOnAction(e -> load.cancel());
+        loadButton.setDisable(true);
+        isLoading.set(true);
+    }
+
+    public void hideLoadProgress() {
+        loadProgress.progressProperty().unbind();
+        cancelLoad.setOnAction(null);
+        loadButton.setDisable(false);
+        isLoading.set(false);
+    }
+
     public Button getSaveButton() {
         return saveButton;
     }
@@ -731,10 +713,14 @@ public final class AppUI extends UITemplate {
                 if (showToggleSwitchBox.get()) {
 
                     //when the edit is completed this part sends data to AppData to check if the data is valid.
-                    chart.getData().clear();
+                    //only the edited lines are re-parsed, and a chart that is showing the data is redrawn from them.
                     AppData dataComponent = (AppData) applicationTemplate.getDataComponent();
-                    dataComponent.clear();
                     dataComponent.loadData(textArea.getText());
+                    if (chart.getData() != null) {
+                        chart.clearRegressionLine();
+                        setChartBounds(dataComponent);
+                        dataComponent.displayData();
+                    }
                 }
 
             }
@@ -848,20 +834,68 @@ public final class AppUI extends UITemplate {
                 noOfClustersLabel.visibleProperty().bind(isClusteringAlgorithm);
                 noOfClustersText.visibleProperty().bind(isClusteringAlgorithm);
 
+                Label noOfWorkersLabel = new Label("No of Workers : ");
+
+                // Add Workers Field, defaulting to one worker per core
+                TextField noOfWorkersText = new TextField();
+                noOfWorkersText.setPrefHeight(20);
+                noOfWorkersText.setText(String.valueOf(noOfWorkers != 0 ? noOfWorkers : Runtime.getRuntime().availableProcessors()));
+
+                gridPane.add(noOfWorkersLabel, 0, 4);
+                gridPane.add(noOfWorkersText, 1, 4);
+
+                noOfWorkersLabel.visibleProperty().bind(isClusteringAlgorithm);
+                noOfWorkersText.visibleProperty().bind(isClusteringAlgorithm);
+
+                Label seedLabel = new Label("Seed : ");
+
+                // Add Seed Field, left empty for a different random run every time
+                TextField seedText = new TextField();
+                seedText.setPrefHeight(20);
+                if (seed != null) {
+                    seedText.setText(String.valueOf(seed));
+                }
+
+                gridPane.add(seedLabel, 0, 5);
+                gridPane.add(seedText, 1, 5);
+
+                seedLabel.visibleProperty().bind(isClusteringAlgorithm);
+                seedText.visibleProperty().bind(isClusteringAlgorithm);
+
+                // Add Target FPS Field, 0 shows an update on every frame
+                Label targetFpsLabel = new Label("Target FPS : ");
+                gridPane.add(targetFpsLabel, 0, 6);
+
+                TextField targetFpsText = new TextField();
+                targetFpsText.setPrefHeight(20);
+                targetFpsText.setText(String.valueOf(targetFps));
+                targetFpsText.setTooltip(new Tooltip("Updates shown per second while running, 0 for as fast as possible"));
+                gridPane.add(targetFpsText, 1, 6);
+
+                // Add Checkpoint Field, 0 runs without saving a checkpoint to resume from
+                Label checkpointLabel = new Label("Checkpoint Every : ");
+                gridPane.add(checkpointLabel, 0, 7);
+
+                TextField checkpointText = new TextField();
+                checkpointText.setPrefHeight(20);
+                checkpointText.setText(String.valueOf(checkpointInterval));
+                checkpointText.setTooltip(new Tooltip("Iterations between saves of a checkpoint that a later run on the same data resumes from, 0 for none"));
+                gridPane.add(checkpointText, 1, 7);
+
                 Label runPlay = new Label("Continous Run?");
-                gridPane.add(runPlay, 0, 4);
+                gridPane.add(runPlay, 0, 8);
 
                 // Is continous checkbox
                 CheckBox checkBox = new CheckBox();
                 checkBox.setPrefHeight(20);
                 checkBox.setSelected(isContinous);
-                gridPane.add(checkBox, 1, 4);
+                gridPane.add(checkBox, 1, 8);
 
                 // Add Submit Button
                 Button submit = new Button("Submit");
                 submit.setPrefHeight(40);
                 submit.setPrefWidth(100);
-                gridPane.add(submit, 0, 5, 2, 1);
+                gridPane.add(submit, 0, 9, 2, 1);
                 GridPane.setHalignment(submit, HPos.CENTER);
                 GridPane.setMargin(submit, new Insets(20, 0, 20, 0));
 
@@ -872,10 +906,14 @@ public final class AppUI extends UITemplate {
                         updateInterval = Integer.parseInt(updateIntervalText.getText());
                         if (isClusteringAlgorithm.get()) {
                             noOfClusters = Integer.parseInt(noOfClustersText.getText());
+                            noOfWorkers = Integer.parseInt(noOfWorkersText.getText());
+                            seed = seedText.getText().trim().isEmpty() ? null : Long.parseLong(seedText.getText().trim());
                         }
                         isContinous = checkBox.isSelected();
+                        targetFps = Integer.parseInt(targetFpsText.getText());
+                        checkpointInterval = Integer.parseInt(checkpointText.getText());
 
-                        if (maxIterations < 0 || updateInterval < 0 || (isClusteringAlgorithm.get() && noOfClusters < 2))
+                        if (maxIterations < 0 || updateInterval < 1 || targetFps < 0 || checkpointInterval < 0 || (isClusteringAlgorithm.get() && (noOfClusters < 2 || noOfWorkers < 1)))
                             throw new NumberFormatException();
 
                         secondryStage.close();
@@ -893,7 +931,7 @@ public final class AppUI extends UITemplate {
                 });
 
                 //Scene and stage addition
-                Scene secondryScene = new Scene(gridPane, 400, 300);
+                Scene secondryScene = new Scene(gridPane, 400, 460);
                 secondryStage.setScene(secondryScene);
                 secondryStage.initOwner(primaryStage);
                 secondryStage.initModality(Modality.WINDOW_MODAL);
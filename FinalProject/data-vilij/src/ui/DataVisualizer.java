@@ -3,6 +3,7 @@ package ui;
 import actions.AppActions;
 import dataprocessors.AppData;
 import javafx.stage.Stage;
+import metrics.Metrics;
 import vilij.templates.ApplicationTemplate;
 
 import static vilij.settings.InitializationParams.*;
@@ -18,6 +19,7 @@ public final class DataVisualizer extends ApplicationTemplate {
 
     @Override
     public void start(Stage primaryStage) {
+        Metrics.register();
         dialogsAudit(primaryStage);
         if (propertyAudit())
             userInterfaceAudit(primaryStage);
@@ -0,0 +1,172 @@
+package ui;
+
+import data.DataSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The points of a {@link DataSet} that fall into a region of the plane, counted per pixel of the plot and per label
+ * color. This is the level of detail at which the {@link ScatterPlot} draws: however many points there are, a plot
+ * only ever renders one grid cell per pixel, either as a marker for the points on it, or, when too many points are
+ * visible to tell apart, as a heatmap of their density.
+ * <p>
+ * Large datasets are counted in parallel parts on the common {@link ForkJoinPool}, each into its own grid, and the
+ * grids are added up afterwards. When points change labels, the grid is adjusted point by point, see
+ * {@link #relabel(int, int, int)}, rather than counted anew.
+ *
+ * @author Aditya Taday
+ */
+final class DensityGrid {
+
+    /** The fewest points worth counting in a part of their own. */
+    private static final int MIN_PART_SIZE = 1 << 18;
+
+    final int       width;
+    final int       height;
+    final int       colors;
+    final int[]     counts;      // the count of color c at pixel p is at c * width * height + p
+    int[]           labelCounts; // by label id, the number of visible points of that label
+    long            visibleCount;
+
+    private final double minX;
+    private final double maxY;
+    private final double xScale;
+    private final double yScale;
+
+    private DensityGrid(double minX, double maxX, double minY, double maxY, int width, int height, int colors,
+                        int labels) {
+        this.width = width;
+        this.height = height;
+        this.colors = colors;
+        this.counts = new int[colors * width * height];
+        this.labelCounts = new int[labels];
+        this.minX = minX;
+        this.maxY = maxY;
+        this.xScale = width / (maxX - minX);
+        this.yScale = height / (maxY - minY);
+    }
+
+    /**
+     * Counts the points of the dataset that fall into the given region, for a plot of the given size in pixels.
+     * Points are counted under the color of their label, which is the label id modulo the number of colors.
+     *
+     * @param data   the dataset, or <code>null</code> for an empty grid
+     * @param colors the number of distinct label colors
+     */
+    static DensityGrid bin(DataSet data, double minX, double maxX, double minY, double maxY, int width, int height,
+                           int colors) {
+        return bin(data, data == null ? null : data.getLabelIds(), minX, maxX, minY, maxY, width, height, colors);
+    }
+
+    /**
+     * Counts the points as {@link #bin(DataSet, double, double, double, double, int, int, int)} does, but under the
+     * given label ids rather than the current ones of the dataset, e.g., under a snapshot of them while the dataset is
+     * relabeled during the count.
+     */
+    static DensityGrid bin(DataSet data, int[] labelIds, double minX, double maxX, double minY, double maxY,
+                           int width, int height, int colors) {
+        int size = data == null ? 0 : data.size();
+        int labels = data == null ? 0 : data.labelCount();
+        int parts = (int) Math.min(ForkJoinPool.getCommonPoolParallelism(),
+                                   Math.max(1, (long) size / MIN_PART_SIZE));
+        if (parts <= 1) {
+            DensityGrid grid = new DensityGrid(minX, maxX, minY, maxY, width, height, colors, labels);
+            grid.count(data, labelIds, 0, size);
+            return grid;
+        }
+
+        List<Future<DensityGrid>> partialGrids = new ArrayList<>();
+        for (int part = 0; part < parts; part++) {
+            int from = (int) ((long) size * part / parts);
+            int to = (int) ((long) size * (part + 1) / parts);
+            partialGrids.add(ForkJoinPool.commonPool().submit(() -> {
+                DensityGrid partial = new DensityGrid(minX, maxX, minY, maxY, width, height, colors, labels);
+                partial.count(data, labelIds, from, to);
+                return partial;
+            }));
+        }
+        try {
+            DensityGrid grid = partialGrids.get(0).get();
+            for (int part = 1; part < parts; part++)
+                grid.add(partialGrids.get(part).get());
+            return grid;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new DensityGrid(minX, maxX, minY, maxY, width, height, colors, labels);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of visible points of the given color at the given pixel
+     */
+    int countAt(int color, int pixel) {
+        return counts[color * width * height + pixel];
+    }
+
+    /**
+     * @return the pixel of the given point, or -1 if the point is not visible
+     */
+    int pixelOf(double x, double y) {
+        double column = (x - minX) * xScale;
+        double row = (maxY - y) * yScale;
+        if (column >= 0 && column < width && row >= 0 && row < height)
+            return (int) row * width + (int) column;
+        return -1;
+    }
+
+    /**
+     * @return whether the grid counts the given label under a color of its own, or, if it has fewer colors than the
+     *         label needs, under one shared with other labels, in which case it must be counted anew
+     */
+    boolean distinguishes(int labelId) {
+        return labelId < colors || colors == ScatterPlot.LABEL_COLORS.length;
+    }
+
+    /**
+     * Moves a visible point on the given pixel from one label to another.
+     */
+    void relabel(int pixel, int fromLabelId, int toLabelId) {
+        counts[(fromLabelId % colors) * width * height + pixel]--;
+        counts[(toLabelId % colors) * width * height + pixel]++;
+        if (toLabelId >= labelCounts.length)
+            labelCounts = Arrays.copyOf(labelCounts, toLabelId + 1);
+        labelCounts[fromLabelId]--;
+        labelCounts[toLabelId]++;
+    }
+
+    private void count(DataSet data, int[] labelIds, int from, int to) {
+        if (data == null)
+            return;
+        double[] xs = data.getXs();
+        double[] ys = data.getYs();
+        int pixels = width * height;
+        long visible = 0;
+        for (int i = from; i < to; i++) {
+            double x = (xs[i] - minX) * xScale;
+            double y = (maxY - ys[i]) * yScale;
+            if (x >= 0 && x < width && y >= 0 && y < height) {
+                int labelId = labelIds[i];
+                counts[(labelId % colors) * pixels + (int) y * width + (int) x]++;
+                if (labelId < labelCounts.length)
+                    labelCounts[labelId]++;
+                visible++;
+            }
+        }
+        visibleCount = visible;
+    }
+
+    private void add(DensityGrid other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        for (int labelId = 0; labelId < labelCounts.length; labelId++)
+            labelCounts[labelId] += other.labelCounts[labelId];
+        visibleCount += other.visibleCount;
+    }
+}
@@ -0,0 +1,81 @@
+package ui;
+
+import algorithms.CoalescingChannel;
+import javafx.animation.AnimationTimer;
+import metrics.Metrics;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Displays the progress of a running algorithm at the pace of the screen rather than of the algorithm. Once per
+ * frame (or less often, for a given target frame rate) the consumer takes whatever update is pending in the
+ * algorithm's channel and hands it to the display on the JavaFX application thread. A coalescing channel merges
+ * the updates produced between two frames, so the display never falls behind a fast algorithm.
+ * <p>
+ * In step mode, the consumer stops taking updates after each one it displayed, until {@link #step()} is called.
+ *
+ * @param <T> the type of the algorithm's updates
+ * @author Aditya Taday
+ */
+class FramePacedConsumer<T> extends AnimationTimer {
+
+    private final CoalescingChannel<T> channel;
+    private final BooleanSupplier      producerIsDone;
+    private final Consumer<T>          display;
+    private final Runnable             onFinished;
+    private final long                 frameInterval;
+    private final boolean              stepping;
+
+    private long    lastFrame;
+    private boolean waitingForStep;
+
+    /**
+     * @param channel        the channel the algorithm puts its updates on
+     * @param producerIsDone tells whether the algorithm has put its last update on the channel
+     * @param display        shows an update
+     * @param onFinished     called once the last update was shown
+     * @param targetFps      the highest number of updates to show per second, or <code>0</code> to show one per frame
+     * @param stepping       whether to wait for {@link #step()} after every update
+     */
+    FramePacedConsumer(CoalescingChannel<T> channel, BooleanSupplier producerIsDone, Consumer<T> display,
+                       Runnable onFinished, int targetFps, boolean stepping) {
+        this.channel = channel;
+        this.producerIsDone = producerIsDone;
+        this.display = display;
+        this.onFinished = onFinished;
+        this.frameInterval = targetFps > 0 ? 1_000_000_000L / targetFps : 0;
+        this.stepping = stepping;
+    }
+
+    /**
+     * Lets a consumer in step mode show the next update.
+     */
+    void step() {
+        waitingForStep = false;
+    }
+
+    boolean isWaitingForStep() {
+        return waitingForStep;
+    }
+
+    @Override
+    public void handle(long now) {
+        if (waitingForStep || now - lastFrame < frameInterval)
+            return;
+        lastFrame = now;
+
+        // read before polling, so that an update put right before the producer finished is not missed
+        boolean done = producerIsDone.getAsBoolean();
+        T update = channel.poll();
+        if (update != null) {
+            long renderStart = System.nanoTime();
+            display.accept(update);
+            Metrics.RENDER_NANOS.record(System.nanoTime() - renderStart);
+            waitingForStep = stepping;
+        } else if (done) {
+            stop();
+            onFinished.run();
+        }
+    }
+}
@@ -0,0 +1,676 @@
+package ui;
+
+import data.DataSet;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Side;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A scatter plot of a {@link DataSet}, drawn straight from its coordinate and label columns onto a {@link Canvas}.
+ * Unlike an {@link javafx.scene.chart.XYChart}, which needs a node per point, the plot renders all points into one
+ * pixel buffer that is copied to the canvas as an image, so the scene graph stays the same size regardless of the
+ * data. Each label has its own color, listed in a legend, and a classifier's line may be drawn over the points.
+ * <p>
+ * The points are first counted per pixel (see {@link DensityGrid}), so rendering costs time in proportion to the
+ * size of the plot, not to the number of points: a view of few points shows each of them, and a view of more points
+ * than it can tell apart shows their density instead. Scrolling zooms, dragging pans, and a double click shows the
+ * whole data again; for large datasets, the points of the new view are counted in the background. Hovering over a
+ * point shows its instance in a tooltip; the instance is looked up in the spatial index of the dataset rather than
+ * found by a handler per point, so hovering stays cheap for any number of points. Points that change labels, e.g.,
+ * between the iterations of a clusterer, are moved within the counts by {@link #relabel(int, int)}, which costs
+ * time in proportion to the number of changed points.
+ * <p>
+ * The plot does not copy the data: after the dataset was changed, {@link #redraw()} must be called on the JavaFX
+ * application thread, and the dataset must not be changed by other threads (a change during a background count shows
+ * at the next redraw). Redraws requested within one pulse are done once, at the next layout.
+ *
+ * @author Aditya Taday
+ */
+public class ScatterPlot extends Region {
+
+    static final Color[]         LABEL_COLORS     = {Color.web("#a9e200"), Color.web("#22bad9"),
+                                                     Color.web("#0181e2"), Color.web("#2f357f"),
+                                                     Color.web("#860061"), Color.web("#c62b00"),
+                                                     Color.web("#ff5700"), Color.web("#914800")};
+    private static final Color   REGRESSION_COLOR = Color.RED;
+    private static final double  REGRESSION_WIDTH = 2;
+    private static final int     POINT_RADIUS     = 2;
+    private static final int     TICKS            = 8;
+    private static final double  GAP              = 5;
+    private static final double  ZOOM_FACTOR      = 1.25;
+    /** How many pixels away from a point the mouse may be to show the point's tooltip. */
+    private static final double  HOVER_RADIUS     = POINT_RADIUS + 3;
+    private static final double  TOOLTIP_OFFSET   = 12;
+
+    /** The most visible points drawn as markers; more are drawn as a heatmap. */
+    private static final int    EXACT_POINTS_LIMIT  = 100_000;
+    /** The largest dataset that is counted on the JavaFX application thread rather than in the background. */
+    private static final int    SYNC_BINNING_LIMIT  = 100_000;
+    private static final double MIN_DENSITY_OPACITY = 0.3;
+
+    private static final ExecutorService BINNER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "plot-binning");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Label      title          = new Label();
+    private final NumberAxis xAxis          = new NumberAxis();
+    private final NumberAxis yAxis          = new NumberAxis();
+    private final Region     plotBackground = new Region();
+    private final Canvas     canvas         = new Canvas();
+    private final FlowPane   legend         = new FlowPane(10, 4);
+    private final Tooltip    hoverTooltip   = new Tooltip();
+
+    private DataSet       data;
+    private boolean       hasRegression;
+    private final double[] regression = new double[4];
+    private final List<String> legendLabels = new ArrayList<>();
+
+    private WritableImage image;
+    private int[]         pixels;
+    private boolean       redrawNeeded;
+    private boolean       renderNeeded;
+    private DensityGrid   grid;     // the counts of the current view, or null while they are being counted
+    private int[]         countingRelabels = new int[48]; // (index, old label id, new label id) since the count began
+    private int           countingRelabelCount;
+    private boolean       counting;   // whether the grid of the current view is being counted in the background
+    private int[]         dirtyPixels = new int[16]; // the pixels whose counts changed since the grid was rendered
+    private int           dirtyCount;
+
+    // how the grid was last rendered
+    private Color[]       colors;
+    private int[]         colorArgbs;
+    private boolean       showingPoints;
+    private int           maxTotal;   // the most points on any pixel of the heatmap
+    private final AtomicLong latestRequest = new AtomicLong();
+
+    private double homeMinX;
+    private double homeMaxX;
+    private double homeMinY;
+    private double homeMaxY;
+    private double dragX;
+    private double dragY;
+    private int    hoveredInstance = -1;
+
+    public ScatterPlot() {
+        getStyleClass().add("chart");
+        title.getStyleClass().add("chart-title");
+        plotBackground.getStyleClass().add("chart-plot-background");
+        legend.getStyleClass().add("chart-legend");
+        legend.setPadding(new Insets(GAP));
+        xAxis.setSide(Side.BOTTOM);
+        yAxis.setSide(Side.LEFT);
+        for (NumberAxis axis : new NumberAxis[]{xAxis, yAxis}) {
+            axis.setAutoRanging(false);
+            axis.setAnimated(false);
+        }
+        getChildren().addAll(title, yAxis, xAxis, plotBackground, canvas, legend);
+
+        canvas.setOnScroll(event -> {
+            if (event.getDeltaY() != 0)
+                zoom(event.getDeltaY() > 0 ? 1 / ZOOM_FACTOR : ZOOM_FACTOR, event.getX(), event.getY());
+        });
+        canvas.setOnMousePressed(event -> {
+            hideTooltip();
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        canvas.setOnMouseDragged(event -> {
+            pan(event.getX() - dragX, event.getY() - dragY);
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        canvas.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2)
+                resetView();
+        });
+        canvas.setOnMouseMoved(event -> {
+            int instance = instanceAt(event.getX(), event.getY());
+            if (instance < 0) {
+                hideTooltip();
+            } else if (instance != hoveredInstance || !hoverTooltip.isShowing()) {
+                hoveredInstance = instance;
+                hoverTooltip.setText(String.format("%s%n%s%n%s, %s", data.getName(instance), data.getLabel(instance),
+                                                   data.getX(instance), data.getY(instance)));
+                hoverTooltip.show(canvas, event.getScreenX() + TOOLTIP_OFFSET, event.getScreenY() + TOOLTIP_OFFSET);
+            }
+        });
+        canvas.setOnMouseExited(event -> hideTooltip());
+    }
+
+    public void setTitle(String text) {
+        title.setText(text);
+    }
+
+    public NumberAxis getXAxis() {
+        return xAxis;
+    }
+
+    public NumberAxis getYAxis() {
+        return yAxis;
+    }
+
+    /**
+     * Sets the ranges of the axes, and thus the region of the plane that is shown, also when the view is reset after
+     * zooming or panning.
+     */
+    public void setBounds(double minX, double maxX, double minY, double maxY) {
+        homeMinX = minX;
+        homeMaxX = maxX;
+        homeMinY = minY;
+        homeMaxY = maxY;
+        resetView();
+    }
+
+    /**
+     * Shows the given dataset, replacing the one shown so far.
+     */
+    public void setData(DataSet data) {
+        this.data = data;
+        hideTooltip();
+        redraw();
+    }
+
+    public DataSet getData() {
+        return data;
+    }
+
+    /**
+     * @return whether a dataset with at least one instance is shown
+     */
+    public boolean hasData() {
+        return data != null && data.size() > 0;
+    }
+
+    /**
+     * Draws the line through the two given points over the data, replacing any line drawn before.
+     */
+    public void setRegressionLine(double x1, double y1, double x2, double y2) {
+        regression[0] = x1;
+        regression[1] = y1;
+        regression[2] = x2;
+        regression[3] = y2;
+        hasRegression = true;
+        redraw();
+    }
+
+    public void clearRegressionLine() {
+        hasRegression = false;
+        redraw();
+    }
+
+    public boolean hasRegressionLine() {
+        return hasRegression;
+    }
+
+    /**
+     * Removes the data and the line from the plot.
+     */
+    public void clear() {
+        data = null;
+        hideTooltip();
+        hasRegression = false;
+        redraw();
+    }
+
+    /**
+     * Relabels a point of the shown dataset, and moves it to its new label in the counts of the current view, so that
+     * the plot is updated without counting the other points again. The plot is rendered once, at the next layout,
+     * after any number of relabeled points. Points relabeled while the view is counted in the background are moved
+     * in its counts once they are done.
+     */
+    public void relabel(int index, int labelId) {
+        int oldLabelId = data.getLabelIds()[index];
+        if (oldLabelId == labelId)
+            return;
+        data.setLabelId(index, labelId);
+        if (grid == null) {
+            if (!counting)
+                return;
+            if (countingRelabelCount + 3 > countingRelabels.length)
+                countingRelabels = Arrays.copyOf(countingRelabels, 2 * countingRelabels.length);
+            countingRelabels[countingRelabelCount++] = index;
+            countingRelabels[countingRelabelCount++] = oldLabelId;
+            countingRelabels[countingRelabelCount++] = labelId;
+        } else if (!grid.distinguishes(labelId)) {
+            redraw();
+        } else {
+            int pixel = grid.pixelOf(data.getX(index), data.getY(index));
+            if (pixel < 0)
+                return;
+            grid.relabel(pixel, oldLabelId, labelId);
+            if (dirtyCount == dirtyPixels.length)
+                dirtyPixels = Arrays.copyOf(dirtyPixels, 2 * dirtyCount);
+            dirtyPixels[dirtyCount++] = pixel;
+            renderNeeded = true;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Schedules a redraw, e.g., after the shown dataset was changed.
+     */
+    public void redraw() {
+        redrawNeeded = true;
+        requestLayout();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double left = snappedLeftInset();
+        double top = snappedTopInset();
+        double width = getWidth() - left - snappedRightInset();
+        double height = getHeight() - top - snappedBottomInset();
+
+        double titleHeight = snapSizeY(title.prefHeight(width));
+        title.resizeRelocate(left, top, width, titleHeight);
+        double legendHeight = snapSizeY(legend.prefHeight(width));
+        legend.resizeRelocate(left, top + height - legendHeight, width, legendHeight);
+
+        double yAxisWidth = snapSizeX(yAxis.prefWidth(-1));
+        double xAxisHeight = snapSizeY(xAxis.prefHeight(-1));
+        double plotX = left + yAxisWidth;
+        double plotY = top + titleHeight + GAP;
+        double plotWidth = Math.max(0, width - yAxisWidth - GAP);
+        double plotHeight = Math.max(0, height - titleHeight - GAP - xAxisHeight - legendHeight);
+
+        yAxis.resizeRelocate(left, plotY, yAxisWidth, plotHeight);
+        xAxis.resizeRelocate(plotX, plotY + plotHeight, plotWidth, xAxisHeight);
+        plotBackground.resizeRelocate(plotX, plotY, plotWidth, plotHeight);
+        canvas.relocate(plotX, plotY);
+        if (canvas.getWidth() != Math.floor(plotWidth) || canvas.getHeight() != Math.floor(plotHeight)) {
+            canvas.setWidth(Math.floor(plotWidth));
+            canvas.setHeight(Math.floor(plotHeight));
+            redrawNeeded = true;
+        }
+        if (redrawNeeded) {
+            redrawNeeded = false;
+            renderNeeded = false;
+            draw();
+        } else if (renderNeeded) {
+            renderNeeded = false;
+            if (grid != null)
+                renderChanges();
+        }
+    }
+
+    /**
+     * Counts the points per pixel in a {@link DensityGrid} and renders the grid. Small datasets are counted right
+     * away; larger ones in the background, under a snapshot of their labels, after which the points relabeled in the
+     * meantime are moved to their new labels in the grid, and the grid is rendered on the JavaFX application thread,
+     * unless another redraw was requested in the meantime.
+     */
+    void draw() {
+        long request = latestRequest.incrementAndGet();
+        countingRelabelCount = 0;
+        counting = false;
+        int width = (int) canvas.getWidth();
+        int height = (int) canvas.getHeight();
+        if (width == 0 || height == 0) {
+            grid = null;
+            canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            return;
+        }
+        DataSet shown = data;
+        double minX = xAxis.getLowerBound();
+        double maxX = xAxis.getUpperBound();
+        double minY = yAxis.getLowerBound();
+        double maxY = yAxis.getUpperBound();
+        int colors = shown == null ? 1 : Math.max(1, Math.min(shown.labelCount(), LABEL_COLORS.length));
+        if (shown == null || shown.size() <= SYNC_BINNING_LIMIT) {
+            render(DensityGrid.bin(shown, minX, maxX, minY, maxY, width, height, colors));
+            return;
+        }
+        grid = null;
+        int[] labelIds = shown.getLabelIdsSnapshot();
+        counting = true;
+        BINNER.execute(() -> {
+            if (request != latestRequest.get())
+                return;
+            DensityGrid counted = DensityGrid.bin(shown, labelIds, minX, maxX, minY, maxY, width, height, colors);
+            Platform.runLater(() -> {
+                if (request != latestRequest.get())
+                    return;
+                counting = false;
+                if (applyCountingRelabels(counted))
+                    render(counted);
+                else
+                    redraw();
+            });
+        });
+    }
+
+    /**
+     * Moves the points relabeled while the given grid was being counted to their new labels in it.
+     *
+     * @return whether the grid could take every relabel, or must be counted anew
+     */
+    private boolean applyCountingRelabels(DensityGrid counted) {
+        for (int i = 0; i < countingRelabelCount; i += 3) {
+            int index = countingRelabels[i];
+            if (!counted.distinguishes(countingRelabels[i + 2]))
+                return false;
+            int pixel = counted.pixelOf(data.getX(index), data.getY(index));
+            if (pixel >= 0)
+                counted.relabel(pixel, countingRelabels[i + 1], countingRelabels[i + 2]);
+        }
+        countingRelabelCount = 0;
+        return true;
+    }
+
+    /**
+     * Renders a grid of the current view into the pixel buffer, copies it onto the canvas, and draws the line over
+     * it. Up to {@value #EXACT_POINTS_LIMIT} visible points are drawn as markers in the color of their label; more
+     * are drawn as a heatmap, in which each pixel mixes the colors of the labels on it by their counts, and is the
+     * more opaque the more points it holds.
+     */
+    void render(DensityGrid grid) {
+        this.grid = grid;
+        dirtyCount = 0;
+        int width = grid.width;
+        int height = grid.height;
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new WritableImage(width, height);
+            pixels = new int[width * height];
+        } else {
+            Arrays.fill(pixels, 0);
+        }
+        colors = Arrays.copyOf(LABEL_COLORS, grid.colors);
+        colorArgbs = new int[colors.length];
+        for (int color = 0; color < colors.length; color++)
+            colorArgbs[color] = argbOf(colors[color], 1);
+
+        showingPoints = grid.visibleCount <= EXACT_POINTS_LIMIT;
+        if (showingPoints) {
+            // later colors are stamped over earlier ones, as pointArgbAt expects
+            for (int color = 0; color < colors.length; color++) {
+                int offset = color * pixels.length;
+                for (int pixel = 0; pixel < pixels.length; pixel++) {
+                    if (grid.counts[offset + pixel] > 0)
+                        fillPoint(pixel % width, pixel / width, width, height, colorArgbs[color]);
+                }
+            }
+        } else {
+            maxTotal = 0;
+            for (int pixel = 0; pixel < pixels.length; pixel++)
+                maxTotal = Math.max(maxTotal, totalAt(pixel));
+            for (int pixel = 0; pixel < pixels.length; pixel++)
+                pixels[pixel] = densityArgbAt(pixel);
+        }
+        paint(0, 0, width, height);
+    }
+
+    /**
+     * Renders again only the pixels whose counts changed since the grid was last rendered, and those covered by the
+     * markers centered on them, unless that would be more work than rendering the whole grid.
+     */
+    private void renderChanges() {
+        int width = grid.width;
+        int height = grid.height;
+        int markerSize = 2 * POINT_RADIUS + 1;
+        if (dirtyCount * (showingPoints ? markerSize * markerSize : 1) > pixels.length) {
+            render(grid);
+            return;
+        }
+        int fromX = width;
+        int fromY = height;
+        int toX = -1;
+        int toY = -1;
+        for (int i = 0; i < dirtyCount; i++) {
+            int x = dirtyPixels[i] % width;
+            int y = dirtyPixels[i] / width;
+            int radius = showingPoints ? POINT_RADIUS : 0;
+            int left = Math.max(0, x - radius);
+            int right = Math.min(width - 1, x + radius);
+            int top = Math.max(0, y - radius);
+            int bottom = Math.min(height - 1, y + radius);
+            if (showingPoints) {
+                for (int row = top; row <= bottom; row++) {
+                    for (int column = left; column <= right; column++)
+                        pixels[row * width + column] = pointArgbAt(column, row);
+                }
+            } else if (totalAt(dirtyPixels[i]) > maxTotal) {
+                render(grid);
+                return;
+            } else {
+                pixels[dirtyPixels[i]] = densityArgbAt(dirtyPixels[i]);
+            }
+            fromX = Math.min(fromX, left);
+            fromY = Math.min(fromY, top);
+            toX = Math.max(toX, right);
+            toY = Math.max(toY, bottom);
+        }
+        dirtyCount = 0;
+        if (toX >= 0)
+            paint(fromX, fromY, toX - fromX + 1, toY - fromY + 1);
+        else
+            updateLegend(grid.labelCounts);
+    }
+
+    /**
+     * Copies the given region of the pixel buffer to the image, and draws the image and the line on the canvas.
+     */
+    private void paint(int x, int y, int regionWidth, int regionHeight) {
+        int width = grid.width;
+        int height = grid.height;
+        image.getPixelWriter().setPixels(x, y, regionWidth, regionHeight, PixelFormat.getIntArgbPreInstance(),
+                                         pixels, y * width + x, width);
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        graphics.drawImage(image, 0, 0);
+        if (hasRegression) {
+            graphics.setStroke(REGRESSION_COLOR);
+            graphics.setLineWidth(REGRESSION_WIDTH);
+            graphics.strokeLine(xPixelOf(regression[0], width), yPixelOf(regression[1], height),
+                                xPixelOf(regression[2], width), yPixelOf(regression[3], height));
+        }
+        updateLegend(grid.labelCounts);
+    }
+
+    /**
+     * @return the color of the given pixel among the markers: that of the last color with a point close enough
+     */
+    private int pointArgbAt(int x, int y) {
+        int left = Math.max(0, x - POINT_RADIUS);
+        int right = Math.min(grid.width - 1, x + POINT_RADIUS);
+        int top = Math.max(0, y - POINT_RADIUS);
+        int bottom = Math.min(grid.height - 1, y + POINT_RADIUS);
+        for (int color = colors.length - 1; color >= 0; color--) {
+            int offset = color * pixels.length;
+            for (int row = top; row <= bottom; row++) {
+                for (int column = left; column <= right; column++) {
+                    if (grid.counts[offset + row * grid.width + column] > 0)
+                        return colorArgbs[color];
+                }
+            }
+        }
+        return 0;
+    }
+
+    private int totalAt(int pixel) {
+        int total = 0;
+        for (int color = 0; color < colors.length; color++)
+            total += grid.countAt(color, pixel);
+        return total;
+    }
+
+    /**
+     * @return the color of the given pixel in the heatmap: the colors of its points mixed by their counts, the more
+     *         opaque the more points it holds
+     */
+    private int densityArgbAt(int pixel) {
+        double total = 0;
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int color = 0; color < colors.length; color++) {
+            int count = grid.countAt(color, pixel);
+            total += count;
+            red += count * colors[color].getRed();
+            green += count * colors[color].getGreen();
+            blue += count * colors[color].getBlue();
+        }
+        if (total == 0)
+            return 0;
+        double opacity = MIN_DENSITY_OPACITY + (1 - MIN_DENSITY_OPACITY) * Math.log1p(total) / Math.log1p(maxTotal);
+        return argbOf(Color.color(red / total, green / total, blue / total), opacity);
+    }
+
+    private void fillPoint(int x, int y, int width, int height, int argb) {
+        int fromX = Math.max(0, x - POINT_RADIUS);
+        int toX = Math.min(width - 1, x + POINT_RADIUS);
+        int fromY = Math.max(0, y - POINT_RADIUS);
+        int toY = Math.min(height - 1, y + POINT_RADIUS);
+        for (int row = fromY; row <= toY; row++) {
+            int offset = row * width;
+            for (int column = fromX; column <= toX; column++)
+                pixels[offset + column] = argb;
+        }
+    }
+
+    private double xPixelOf(double x, int width) {
+        return (x - xAxis.getLowerBound()) * width / (xAxis.getUpperBound() - xAxis.getLowerBound());
+    }
+
+    private double yPixelOf(double y, int height) {
+        return (yAxis.getUpperBound() - y) * height / (yAxis.getUpperBound() - yAxis.getLowerBound());
+    }
+
+    /**
+     * @return the index of the instance nearest to the given pixel of the canvas, if it is within
+     * {@link #HOVER_RADIUS} pixels along both axes, or <code>-1</code>
+     */
+    int instanceAt(double pixelX, double pixelY) {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        if (!hasData() || width <= 0 || height <= 0)
+            return -1;
+        double xPerPixel = (xAxis.getUpperBound() - xAxis.getLowerBound()) / width;
+        double yPerPixel = (yAxis.getUpperBound() - yAxis.getLowerBound()) / height;
+        double x = xAxis.getLowerBound() + pixelX * xPerPixel;
+        double y = yAxis.getUpperBound() - pixelY * yPerPixel;
+        // the nearest instance within a circle around both pixel radii, if it is also within the radius in pixels
+        int instance = data.nearestInstance(x, y, HOVER_RADIUS * Math.max(xPerPixel, yPerPixel));
+        if (instance < 0 || Math.abs(data.getX(instance) - x) > HOVER_RADIUS * xPerPixel
+            || Math.abs(data.getY(instance) - y) > HOVER_RADIUS * yPerPixel)
+            return -1;
+        return instance;
+    }
+
+    private void hideTooltip() {
+        hoveredInstance = -1;
+        hoverTooltip.hide();
+    }
+
+    /**
+     * Zooms the view by the given factor, keeping the point under the given pixel in place.
+     */
+    private void zoom(double factor, double pixelX, double pixelY) {
+        double xFraction = pixelX / canvas.getWidth();
+        double yFraction = pixelY / canvas.getHeight();
+        double xRange = xAxis.getUpperBound() - xAxis.getLowerBound();
+        double yRange = yAxis.getUpperBound() - yAxis.getLowerBound();
+        double x = xAxis.getLowerBound() + xFraction * xRange;
+        double y = yAxis.getUpperBound() - yFraction * yRange;
+        setView(x - xFraction * xRange * factor, x + (1 - xFraction) * xRange * factor,
+                y - (1 - yFraction) * yRange * factor, y + yFraction * yRange * factor);
+    }
+
+    /**
+     * Moves the view by the given number of pixels, so that the data follows the mouse.
+     */
+    private void pan(double pixelsX, double pixelsY) {
+        double dx = -pixelsX / canvas.getWidth() * (xAxis.getUpperBound() - xAxis.getLowerBound());
+        double dy = pixelsY / canvas.getHeight() * (yAxis.getUpperBound() - yAxis.getLowerBound());
+        setView(xAxis.getLowerBound() + dx, xAxis.getUpperBound() + dx,
+                yAxis.getLowerBound() + dy, yAxis.getUpperBound() + dy);
+    }
+
+    private void setView(double minX, double maxX, double minY, double maxY) {
+        hideTooltip();
+        setRange(xAxis, minX, maxX);
+        setRange(yAxis, minY, maxY);
+        redraw();
+    }
+
+    /**
+     * Shows the whole region last set by {@link #setBounds(double, double, double, double)} again.
+     */
+    public void resetView() {
+        setView(homeMinX, homeMaxX, homeMinY, homeMaxY);
+    }
+
+    /**
+     * Lists the shown labels with their colors, rebuilding the legend only if they changed.
+     */
+    private void updateLegend(int[] labelCounts) {
+        List<String> labels = new ArrayList<>();
+        for (int labelId = 0; labelId < labelCounts.length; labelId++) {
+            if (labelCounts[labelId] > 0)
+                labels.add(data.labelOf(labelId));
+        }
+        if (hasRegression)
+            labels.add(null);
+        if (labels.equals(legendLabels))
+            return;
+        legendLabels.clear();
+        legendLabels.addAll(labels);
+        legend.getChildren().clear();
+        for (int labelId = 0; labelId < labelCounts.length; labelId++) {
+            if (labelCounts[labelId] > 0)
+                legend.getChildren().add(legendItem(data.labelOf(labelId), LABEL_COLORS[labelId % LABEL_COLORS.length]));
+        }
+        if (hasRegression)
+            legend.getChildren().add(legendItem("Regression", REGRESSION_COLOR));
+        requestLayout();
+    }
+
+    private static Label legendItem(String text, Color color) {
+        Label item = new Label(text, new Rectangle(10, 10, color));
+        item.getStyleClass().add("chart-legend-item");
+        return item;
+    }
+
+    /**
+     * @return the color with the given opacity, as a premultiplied ARGB pixel
+     */
+    private static int argbOf(Color color, double opacity) {
+        return (int) Math.round(opacity * 255) << 24 | (int) Math.round(color.getRed() * opacity * 255) << 16
+               | (int) Math.round(color.getGreen() * opacity * 255) << 8
+               | (int) Math.round(color.getBlue() * opacity * 255);
+    }
+
+    /**
+     * Sets the range of an axis, with about {@value #TICKS} tick marks at round values.
+     */
+    private static void setRange(NumberAxis axis, double lower, double upper) {
+        if (upper <= lower)
+            upper = lower + 1;
+        double step = (upper - lower) / TICKS;
+        double magnitude = Math.pow(10, Math.floor(Math.log10(step)));
+        double normalized = step / magnitude;
+        double tickUnit = (normalized <= 1 ? 1 : normalized <= 2 ? 2 : normalized <= 5 ? 5 : 10) * magnitude;
+        axis.setLowerBound(lower);
+        axis.setUpperBound(upper);
+        axis.setTickUnit(tickUnit);
+    }
+}